@@ -46,7 +46,13 @@ public abstract class AbstractObjectMapperConfiguration extends PropertiesImpl {
          * {@link ObjectMapper#registerModules(Iterable)} with the return
          * value of {@link ObjectMapper#findModules(ClassLoader)}.
          */
-        REGISTER_MODULES;
+        REGISTER_MODULES,
+        /**
+         * If set and {@code true}, calls
+         * {@link ObjectMapper#setNodeFactory(com.fasterxml.jackson.databind.node.JsonNodeFactory)}
+         * with a new {@link InterningJsonNodeFactory}.
+         */
+        INTERN_NODE_VALUES;
 
         private static final SortedMap<String,Enum<?>> MAP = unmodifiableSortedMap(new EnumLookupMap(Feature.class));
     }
@@ -110,6 +116,12 @@ public abstract class AbstractObjectMapperConfiguration extends PropertiesImpl {
                     mapper.registerModules(ObjectMapper.findModules(loader));
                     break;
 
+                case INTERN_NODE_VALUES:
+                    if (Boolean.valueOf(getProperty(name))) {
+                        mapper.setNodeFactory(new InterningJsonNodeFactory());
+                    }
+                    break;
+
                 default:
                     break;
                 }
@@ -0,0 +1,50 @@
+package ball.databind;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * {@link java.lang.annotation.Annotation} to mark a
+ * {@link PolymorphicTypeMap} subclass whose {@link java.util.Properties}
+ * resource should be validated and compiled to a registration class at
+ * build time (see
+ * {@link ball.databind.processing.CompiledTypeMapProcessor}).  An
+ * annotated {@link PolymorphicTypeMap} is populated from the generated
+ * class (if present) rather than by loading and parsing the resource at
+ * run time.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@Documented
+@Retention(RUNTIME)
+@Target({ TYPE })
+public @interface CompiledTypeMap {
+
+    /**
+     * Suffix appended to the annotated {@link PolymorphicTypeMap}
+     * subclass's binary name to name the generated registration class.
+     */
+    public static final String SUFFIX = "_Registrations";
+}
@@ -0,0 +1,407 @@
+package ball.databind;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * {@link JsonNodeFactory} implementation that canonicalizes short
+ * {@link TextNode} values and field names through bounded, concurrent
+ * intern tables so that retained {@link JSONBean} trees with repetitive
+ * content share storage.  Install with
+ * {@link com.fasterxml.jackson.databind.ObjectMapper#setNodeFactory(JsonNodeFactory)}
+ * (or see
+ * {@link AbstractObjectMapperConfiguration.Feature#INTERN_NODE_VALUES}).
+ * <p>
+ * Each table is a 4-way set-associative cache guarded by a
+ * frequency-based admission policy:  Every lookup is recorded in an
+ * approximate, periodically aged frequency sketch and, once a set is
+ * full, a value replaces the least frequently seen entry of its set only
+ * if it has been seen more often.  Values seen once (identifiers,
+ * timestamps) therefore do not displace frequent (enumeration-like)
+ * values and no entry is retained after it stops being seen.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class InterningJsonNodeFactory extends JsonNodeFactory {
+    private static final long serialVersionUID = -3417706003581839412L;
+
+    /**
+     * Default intern table capacity.
+     */
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+    /**
+     * Default maximum length of an interned value.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    /** @serial */ @ToString.Include private final int capacity;
+    /** @serial */ @ToString.Include private final int maxLength;
+    private final transient Table<TextNode> values;
+    private final transient Table<String> names;
+    private final transient LongAdder hits = new LongAdder();
+    private final transient LongAdder misses = new LongAdder();
+    private final transient LongAdder saved = new LongAdder();
+
+    /**
+     * Sole constructor.
+     *
+     * @param   capacity        The maximum number of entries in each
+     *                          intern table (rounded up to a power of
+     *                          two).
+     * @param   maxLength       The maximum length of an interned value.
+     */
+    public InterningJsonNodeFactory(int capacity, int maxLength) {
+        super();
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity=" + capacity);
+        }
+
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("maxLength=" + maxLength);
+        }
+
+        this.capacity = capacity;
+        this.maxLength = maxLength;
+        this.values = new Table<>(capacity);
+        this.names = new Table<>(capacity);
+    }
+
+    /**
+     * No-argument constructor.  Creates an instance with
+     * {@link #DEFAULT_CAPACITY} and {@link #DEFAULT_MAX_LENGTH}.
+     */
+    public InterningJsonNodeFactory() { this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH); }
+
+    @Override
+    public TextNode textNode(String text) {
+        TextNode node = null;
+
+        if (text != null && (! text.isEmpty()) && text.length() <= maxLength) {
+            int hash = hash(text);
+
+            node = values.get(text, hash);
+            values.record(hash);
+
+            if (node != null) {
+                hits.increment();
+                saved.add(sizeOf(text) + 16);
+            } else {
+                misses.increment();
+                node = values.admit(text, hash, super.textNode(text));
+            }
+        } else {
+            node = super.textNode(text);
+        }
+
+        return node;
+    }
+
+    /**
+     * Method to canonicalize an existing {@link TextNode}.  The node is
+     * replaced only if an equal value is already interned; it is neither
+     * recorded nor admitted (a node created by {@link #textNode(String)}
+     * has already been) and the lookup is only counted if the node is
+     * replaced.
+     *
+     * @param   node            The {@link TextNode}.
+     *
+     * @return  The canonical {@link TextNode} instance.
+     */
+    public TextNode intern(TextNode node) {
+        TextNode canonical = node;
+        String text = node.textValue();
+
+        if (text != null && (! text.isEmpty()) && text.length() <= maxLength) {
+            TextNode interned = values.get(text, hash(text));
+
+            if (interned != null && interned != node) {
+                hits.increment();
+                saved.add(sizeOf(text) + 16);
+                canonical = interned;
+            }
+        }
+
+        return canonical;
+    }
+
+    /**
+     * Method to canonicalize a field name.
+     *
+     * @param   name            The field name.
+     *
+     * @return  The canonical {@link String} instance.
+     */
+    public String intern(String name) {
+        String string = name;
+
+        if (name != null && name.length() <= maxLength) {
+            int hash = hash(name);
+
+            string = names.get(name, hash);
+            names.record(hash);
+
+            if (string != null) {
+                hits.increment();
+
+                if (string != name) {
+                    saved.add(sizeOf(name));
+                }
+            } else {
+                misses.increment();
+                string = names.admit(name, hash, name);
+            }
+        }
+
+        return string;
+    }
+
+    /**
+     * Method to get this factory's intern {@link Statistics}.
+     *
+     * @return  The {@link Statistics}.
+     */
+    public Statistics getStatistics() {
+        return new Statistics(values.size() + names.size(), hits.sum(), misses.sum(), saved.sum());
+    }
+
+    private static int hash(String string) {
+        int hash = string.hashCode();
+
+        return hash ^ (hash >>> 16);
+    }
+
+    /*
+     * Estimated shallow size of a compact (Latin-1) String and its backing
+     * array.
+     */
+    private static long sizeOf(String string) {
+        return 24 + ((16 + string.length() + 7) & ~7);
+    }
+
+    private Object readResolve() {
+        return new InterningJsonNodeFactory(capacity, maxLength);
+    }
+
+    /**
+     * {@link InterningJsonNodeFactory} statistics (see
+     * {@link #getStatistics()}).  {@link #getBytesSaved()} is an estimate
+     * of the heap not retained because an interned instance was shared.
+     *
+     * {@bean.info}
+     */
+    @Getter @ToString
+    public static class Statistics {
+        private final long size;
+        private final long hits;
+        private final long misses;
+        private final long bytesSaved;
+
+        private Statistics(long size, long hits, long misses, long bytesSaved) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.bytesSaved = bytesSaved;
+        }
+    }
+
+    /**
+     * 4-way set-associative intern table with frequency-based admission
+     * (see {@link Sketch}).  Entries are immutable and slots are written
+     * without locking:  A lost race only costs an intern opportunity.
+     */
+    private static class Table<V> {
+        private static final int WAYS = 4;
+
+        private final Entry<V>[] entries;
+        private final int mask;
+        private final Sketch sketch;
+
+        @SuppressWarnings({ "unchecked" })
+        public Table(int capacity) {
+            int sets = 0;
+
+            if (capacity > 0) {
+                sets = (capacity + WAYS - 1) / WAYS;
+                sets = (sets > 1) ? Integer.highestOneBit(sets - 1) << 1 : 1;
+            }
+
+            entries = (Entry<V>[]) new Entry<?>[sets * WAYS];
+            mask = sets - 1;
+            sketch = new Sketch(Math.max(4 * entries.length, 16));
+        }
+
+        public V get(String key, int hash) {
+            V value = null;
+
+            if (entries.length > 0) {
+                int base = (hash & mask) * WAYS;
+
+                for (int i = 0; value == null && i < WAYS; i += 1) {
+                    Entry<V> entry = entries[base + i];
+
+                    if (entry != null && entry.hash == hash && entry.key.equals(key)) {
+                        value = entry.value;
+                    }
+                }
+            }
+
+            return value;
+        }
+
+        public void record(int hash) {
+            if (entries.length > 0) {
+                sketch.increment(hash);
+            }
+        }
+
+        public V admit(String key, int hash, V value) {
+            if (entries.length > 0) {
+                int base = (hash & mask) * WAYS;
+                int victim = -1;
+                int minimum = Integer.MAX_VALUE;
+
+                for (int i = 0; i < WAYS; i += 1) {
+                    Entry<V> entry = entries[base + i];
+
+                    if (entry == null) {
+                        victim = base + i;
+                        minimum = -1;
+                        break;
+                    } else if (entry.hash == hash && entry.key.equals(key)) {
+                        value = entry.value;
+                        victim = -1;
+                        break;
+                    } else {
+                        int frequency = sketch.frequency(entry.hash);
+
+                        if (frequency < minimum) {
+                            victim = base + i;
+                            minimum = frequency;
+                        }
+                    }
+                }
+
+                if (victim >= 0 && (minimum < 0 || sketch.frequency(hash) > minimum)) {
+                    entries[victim] = new Entry<>(key, hash, value);
+                }
+            }
+
+            return value;
+        }
+
+        public int size() {
+            int size = 0;
+
+            for (Entry<V> entry : entries) {
+                if (entry != null) {
+                    size += 1;
+                }
+            }
+
+            return size;
+        }
+    }
+
+    private static class Entry<V> {
+        private final String key;
+        private final int hash;
+        private final V value;
+
+        public Entry(String key, int hash, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Approximate (count-min) frequency sketch of 4-bit counters.  The
+     * counters are halved once the number of recorded lookups reaches ten
+     * times the sketch size so frequencies reflect recent traffic.
+     * Updates are not synchronized; lost updates only perturb the
+     * estimates.
+     */
+    private static class Sketch {
+        private static final int[] SEEDS = { 0x97cb3127, 0xb7c5f3e1, 0x4fae0c8d, 0x2f3e1a55 };
+        private static final int MAXIMUM = 15;
+
+        private final byte[] counters;
+        private final int mask;
+        private final int period;
+        private int additions = 0;
+
+        public Sketch(int size) {
+            size = Integer.highestOneBit(size - 1) << 1;
+
+            counters = new byte[size];
+            mask = size - 1;
+            period = 10 * size;
+        }
+
+        public int frequency(int hash) {
+            int frequency = MAXIMUM;
+
+            for (int seed : SEEDS) {
+                frequency = Math.min(frequency, counters[index(hash, seed)]);
+            }
+
+            return frequency;
+        }
+
+        public void increment(int hash) {
+            for (int seed : SEEDS) {
+                int index = index(hash, seed);
+
+                if (counters[index] < MAXIMUM) {
+                    counters[index] += 1;
+                }
+            }
+
+            additions += 1;
+
+            if (additions >= period) {
+                age();
+            }
+        }
+
+        private synchronized void age() {
+            if (additions >= period) {
+                for (int i = 0; i < counters.length; i += 1) {
+                    counters[i] >>= 1;
+                }
+
+                additions = 0;
+            }
+        }
+
+        private int index(int hash, int seed) {
+            int index = hash * seed;
+
+            return (index ^ (index >>> 17)) & mask;
+        }
+    }
+}
@@ -18,43 +18,574 @@ package ball.databind;
  * limitations under the License.
  * ##########################################################################
  */
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
 import lombok.NoArgsConstructor;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
 import static lombok.AccessLevel.PROTECTED;
 
 /**
  * Abstract base class for bean implementations that wrap a
- * {@link JsonNode}.
+ * {@link JsonNode}.  The wrapped {@link JsonNode} is a read-only snapshot
+ * (see {@link #freeze(JsonNodeFactory,JsonNode)}) that may be shared
+ * freely between threads; modifications are made copy-on-write through
+ * {@link #modify(Consumer)}.
+ *
+ * The serialized form (see {@link #writeObject(ObjectOutputStream)}) is
+ * the compact (binary, if available) encoding of the {@link JsonNode},
+ * which is parsed lazily after deserialization.  The {@link ObjectMapper} is not serialized:  A
+ * deserialized bean uses {@link ObjectMapperConfiguration#MAPPER}.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 @NoArgsConstructor(access = PROTECTED)
 public abstract class JSONBean implements Serializable {
-    private static final long serialVersionUID = -7720273815805776898L;
+    private static final long serialVersionUID = 8948819256629032249L;
+
+    private static final AtomicReferenceFieldUpdater<JSONBean,JsonNode> NODE =
+        AtomicReferenceFieldUpdater.newUpdater(JSONBean.class, JsonNode.class, "node");
+
+    /*
+     * Shared cache of compiled JsonPointers.  Once full, expressions that
+     * are not already cached are compiled on each call.
+     */
+    private static final int POINTER_CACHE_SIZE = 4096;
+    private static final ConcurrentHashMap<String,JsonPointer> POINTERS = new ConcurrentHashMap<>();
 
-    /** @serial */ protected ObjectMapper mapper = ObjectMapperConfiguration.MAPPER;
-    /** @serial */ protected JsonNode node = null;
+    protected transient ObjectMapper mapper = ObjectMapperConfiguration.MAPPER;
+    protected transient volatile JsonNode node = null;
+    private transient volatile Source source = null;
+    private transient volatile Compact compact = null;
+    private transient boolean changed = false;
+    private transient JsonNode unchanged = null;
 
     /**
-     * Convenience method to call {@link JsonNode#at(String)}.
+     * Method to initialize this bean lazily from the compact UTF-8
+     * encoding of its source.  The {@link JsonNode} is parsed on first
+     * access (see {@link #getNode()}) and the source is released once
+     * the {@link JsonNode} is published unless it is retained for
+     * pass-through serialization.
+     *
+     * @param   mapper          The {@link ObjectMapper}.
+     * @param   bytes           The UTF-8 encoded source.
+     * @param   passThrough     {@code true} to retain the bytes after the
+     *                          {@link JsonNode} is parsed (see
+     *                          {@link JSONBeanTypeMap#isPassThrough()});
+     *                          {@code false} otherwise.
+     */
+    protected void initialize(ObjectMapper mapper, byte[] bytes, boolean passThrough) {
+        this.mapper = mapper;
+        this.node = null;
+        this.source = (bytes != null) ? new Source(null, bytes, null, passThrough, getSourceText()) : null;
+        this.compact = null;
+    }
+
+    /**
+     * Method to initialize this bean from an encoding of its source in a
+     * (typically binary) format other than JSON (see
+     * {@link JSONBeanTypeMap.Retention#BINARY}).  Only the encoded bytes
+     * are retained:  {@link #getNode()} decodes a new {@link JsonNode} on
+     * every call and {@link #nodeAt(JsonPointer)} decodes only the
+     * matched sub-tree.
+     *
+     * @param   mapper          The {@link ObjectMapper}.
+     * @param   format          The {@link JsonFactory} for the encoding.
+     * @param   bytes           The encoded source.
+     */
+    protected void initialize(ObjectMapper mapper, JsonFactory format, byte[] bytes) {
+        this.mapper = mapper;
+        this.node = null;
+        this.source =
+            new Source(requireNonNull(format, "format"), requireNonNull(bytes, "bytes"), null, true, getSourceText());
+        this.compact = null;
+    }
+
+    /**
+     * Method to initialize this bean from an encoding of its source
+     * spilled to a {@link SpillStore} (see
+     * {@link JSONBeanTypeMap#getSpillStore()}).  Only the
+     * {@link SpillStore.Handle} is retained and the source is decoded
+     * through the mapping as described in
+     * {@link #initialize(ObjectMapper,JsonFactory,byte[])}.
+     *
+     * @param   mapper          The {@link ObjectMapper}.
+     * @param   format          The {@link JsonFactory} for the encoding.
+     * @param   spilled         The {@link SpillStore.Handle} to the
+     *                          encoded source.
+     */
+    protected void initialize(ObjectMapper mapper, JsonFactory format, SpillStore.Handle spilled) {
+        this.mapper = mapper;
+        this.node = null;
+        this.source =
+            new Source(requireNonNull(format, "format"), null, requireNonNull(spilled, "spilled"),
+                       true, getSourceText());
+        this.compact = null;
+    }
+
+    /**
+     * Method to get the {@link JsonNode}.  If this bean was initialized
+     * lazily (see {@link JSONBeanTypeMap.Retention#LAZY}), the retained
+     * source is parsed on first access and the resulting
+     * {@link JsonNode} is published atomically so every thread observes
+     * the same instance (the source is then released unless it is
+     * retained for pass-through serialization).  If this bean retains a
+     * binary encoding (see {@link JSONBeanTypeMap.Retention#BINARY}), a
+     * new read-only {@link JsonNode} is decoded on every call and is not
+     * retained.  (A bean spilled to a {@link SpillStore} is decoded in
+     * the same way.)
+     *
+     * @return  The {@link JsonNode} (may be {@code null}).
+     */
+    protected JsonNode getNode() {
+        JsonNode node = this.node;
+
+        if (node == null) {
+            Source source = getSource();
+
+            if (source != null) {
+                try {
+                    if (source.format != null) {
+                        try (JsonParser parser = source.createParser()) {
+                            node = freeze(mapper.getNodeFactory(), mapper.readTree(parser));
+                        }
+                    } else {
+                        node = publishNode(freeze(mapper.getNodeFactory(), mapper.readTree(source.bytes)));
+
+                        if (! source.retained) {
+                            release(source);
+                        }
+                    }
+                } catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+            } else {
+                /*
+                 * The source is cleared before the node is replaced (see
+                 * setNode(JsonNode)) so a reader that observes neither
+                 * must re-read the node.
+                 */
+                node = this.node;
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * Method to publish a lazily created {@link JsonNode}.  The first
+     * {@link JsonNode} published wins and is the one every thread
+     * observes.
+     *
+     * @param   node            The {@link JsonNode} to publish.
+     *
+     * @return  The published {@link JsonNode}.
+     */
+    protected JsonNode publishNode(JsonNode node) {
+        return NODE.compareAndSet(this, null, node) ? node : this.node;
+    }
+
+    /*
+     * A retained source is ignored once the subclass JSON text (see
+     * getSourceText()) is not the instance it was retained with (e.g.,
+     * the text was assigned directly by a persistence provider).
+     */
+    private Source getSource() {
+        Source source = this.source;
+
+        return (source != null && source.text == getSourceText()) ? source : null;
+    }
+
+    /*
+     * The node is published before the source is released so a reader
+     * that observes neither re-reads the (published) node (see
+     * getNode()).
+     */
+    private void release(Source source) {
+        synchronized (this) {
+            if (this.source == source) {
+                this.source = null;
+            }
+        }
+    }
+
+    /**
+     * Method to retain the compact UTF-8 JSON encoding of this bean's
+     * (unmodified) {@link JsonNode} for pass-through serialization (see
+     * {@link JSONBeanTypeMap#isPassThrough()}).
+     *
+     * @param   bytes           The UTF-8 encoded source (may be
+     *                          {@code null} to discard).
+     */
+    protected void setSource(byte[] bytes) {
+        synchronized (this) {
+            this.source = (bytes != null) ? new Source(null, bytes, null, true, getSourceText()) : null;
+            this.compact = null;
+        }
+    }
+
+    /**
+     * Method to get the JSON text a subclass maintains (and serializes)
+     * as its own representation of the {@link JsonNode} (for example, a
+     * persisted column).  If not {@code null},
+     * {@link #writeObject(ObjectOutputStream)} does not also write the
+     * encoding of the {@link JsonNode} and a cached compact rendering
+     * (see {@link #isCompactStringCached()}) is only used while the
+     * text is the same instance.  Default implementation returns
+     * {@code null}.
+     *
+     * @return  The JSON text (may be {@code null}).
+     */
+    protected String getSourceText() { return null; }
+
+    /**
+     * Method to write this bean's {@link JsonNode} to a
+     * {@link JsonGenerator}.  A retained compact UTF-8 JSON encoding is
+     * written as a raw value if the {@link JsonGenerator} is compatible
+     * (see {@link #isPassThroughCompatible(JsonGenerator)}) and a
+     * retained binary encoding is transcoded directly without building
+     * the {@link JsonNode}.
+     *
+     * @param   generator       The {@link JsonGenerator}.
+     *
+     * @return  {@code true} if written; {@code false} if this bean has no
+     *          {@link JsonNode}.
+     *
+     * @throws  IOException     If the {@link JsonNode} cannot be written.
+     */
+    boolean write(JsonGenerator generator) throws IOException {
+        boolean written = false;
+        Source source = getSource();
+
+        if (source != null && source.format == null && isPassThroughCompatible(generator)) {
+            generator.writeRawValue(new RawValue(source.bytes));
+            written = true;
+        } else if (source != null && source.format != null && this.node == null) {
+            try (JsonParser parser = source.createParser()) {
+                /*
+                 * Copied event-by-event (exactly) to preserve the
+                 * precision of floating-point values.
+                 */
+                while (parser.nextToken() != null) {
+                    generator.copyCurrentEventExact(parser);
+                    written = true;
+                }
+            }
+        } else {
+            JsonNode node = getNode();
+
+            if (node != null) {
+                generator.writeTree(node);
+                written = true;
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Method to determine if a {@link JsonGenerator} would write the
+     * retained source exactly as encoded:  It must be a JSON generator
+     * with no {@link com.fasterxml.jackson.core.PrettyPrinter}, no custom
+     * character escapes, and no features that would alter the encoding of
+     * names, strings, or numbers.
+     *
+     * @param   generator       The {@link JsonGenerator}.
+     *
+     * @return  {@code true} if compatible; {@code false} otherwise.
+     */
+    @SuppressWarnings({ "deprecation" })
+    protected static boolean isPassThroughCompatible(JsonGenerator generator) {
+        return (generator instanceof JsonGeneratorImpl
+                && generator.getPrettyPrinter() == null
+                && generator.getCharacterEscapes() == null
+                && generator.isEnabled(JsonGenerator.Feature.QUOTE_FIELD_NAMES)
+                && (! generator.isEnabled(JsonGenerator.Feature.ESCAPE_NON_ASCII))
+                && (! generator.isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS)));
+    }
+
+    /**
+     * Method to replace the {@link JsonNode}.  Subclasses that maintain
+     * another representation of the {@link JsonNode} should override this
+     * method to update it.
+     *
+     * @param   node            The read-only {@link JsonNode} (see
+     *                          {@link #freeze(JsonNodeFactory,JsonNode)}).
+     */
+    protected void setNode(JsonNode node) {
+        synchronized (this) {
+            this.source = null;
+            this.compact = null;
+            this.node = node;
+        }
+    }
+
+    /**
+     * Method to modify the {@link JsonNode} copy-on-write:  The
+     * {@link Consumer} is applied to a private, mutable copy which is then
+     * frozen and published through {@link #setNode(JsonNode)}.  Readers
+     * holding the previous snapshot are unaffected.
+     *
+     * @param   mutator         The {@link Consumer} to apply.
+     */
+    protected void modify(Consumer<? super JsonNode> mutator) {
+        synchronized (this) {
+            JsonNode node = getNode();
+            JsonNode copy = (node != null) ? node.deepCopy() : mapper.createObjectNode();
+
+            mutator.accept(copy);
+            update(node, freeze(mapper.getNodeFactory(), copy));
+        }
+    }
+
+    /**
+     * Method to apply a JSON Merge Patch (RFC 7386) to the
+     * {@link JsonNode}.  Unchanged sub-trees are shared with the previous
+     * snapshot (see
+     * {@link JSONPatch#merge(JsonNodeFactory,JsonNode,JsonNode)}).
+     *
+     * @param   patch           The merge patch.
+     */
+    protected void mergePatch(JsonNode patch) {
+        synchronized (this) {
+            JsonNode node = getNode();
+
+            update(node, JSONPatch.merge(mapper.getNodeFactory(), node, patch));
+        }
+    }
+
+    /**
+     * Method to apply a JSON Patch (RFC 6902) to the {@link JsonNode}.
+     * The patch is applied atomically and unchanged sub-trees are shared
+     * with the previous snapshot (see
+     * {@link JSONPatch#apply(JsonNodeFactory,JsonNode,JsonNode)}).
+     *
+     * @param   patch           The patch.
+     *
+     * @throws  IllegalArgumentException
+     *                          If the patch is malformed or an operation
+     *                          fails.
+     */
+    protected void patch(JsonNode patch) {
+        synchronized (this) {
+            JsonNode node = getNode();
+
+            update(node, JSONPatch.apply(mapper.getNodeFactory(), node, patch));
+        }
+    }
+
+    private void update(JsonNode node, JsonNode updated) {
+        if (updated != node) {
+            if (isRecordingChanges() && (! changed)) {
+                unchanged = node;
+                changed = true;
+            }
+
+            setNode(updated);
+        }
+    }
+
+    /**
+     * Method to determine if changes are recorded for
+     * {@link #getChanges()}.  The default implementation returns
+     * {@code false}; subclasses that consume the changes should override.
+     *
+     * @return  {@code true} if changes are recorded; {@code false}
+     *          otherwise.
+     */
+    protected boolean isRecordingChanges() { return false; }
+
+    /**
+     * Method to get the changes made through {@link #modify(Consumer)},
+     * {@link #mergePatch(JsonNode)}, and {@link #patch(JsonNode)} since
+     * the last call to {@link #clearChanges()}.  Only the snapshot
+     * preceding the first change is recorded and the (net) patch is
+     * computed on demand.
+     *
+     * @return  The read-only JSON Patch (RFC 6902) of the changes (empty
+     *          if changes are not recorded (see
+     *          {@link #isRecordingChanges()})).
+     */
+    protected JsonNode getChanges() {
+        JsonNodeFactory factory = mapper.getNodeFactory();
+        JsonNode changes = null;
+
+        synchronized (this) {
+            if (changed) {
+                changes = JSONPatch.diff(factory, unchanged, getNode());
+            } else {
+                changes = freeze(factory, mapper.createArrayNode());
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Method to clear the recorded changes (see {@link #getChanges()}).
+     */
+    protected void clearChanges() {
+        synchronized (this) {
+            unchanged = null;
+            changed = false;
+        }
+    }
+
+    /**
+     * Method to create a read-only snapshot of a {@link JsonNode}.
+     * {@link ObjectNode}s and {@link ArrayNode}s are rebuilt over
+     * unmodifiable children (any attempt to modify them throws
+     * {@link UnsupportedOperationException}) while the (immutable) value
+     * nodes are shared with the argument.  If the factory is an
+     * {@link InterningJsonNodeFactory}, field names and text values are
+     * canonicalized through it.
+     *
+     * @param   factory         The {@link JsonNodeFactory}.
+     * @param   node            The {@link JsonNode}.
+     *
+     * @return  The read-only {@link JsonNode}.
+     */
+    protected static JsonNode freeze(JsonNodeFactory factory, JsonNode node) {
+        InterningJsonNodeFactory interning =
+            (factory instanceof InterningJsonNodeFactory) ? (InterningJsonNodeFactory) factory : null;
+        JsonNode frozen = node;
+
+        if (node instanceof ObjectNode) {
+            Map<String,JsonNode> map = new LinkedHashMap<>(Math.max(2 * node.size(), 4));
+            Iterator<Map.Entry<String,JsonNode>> iterator = node.fields();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String,JsonNode> entry = iterator.next();
+
+                String key = (interning != null) ? interning.intern(entry.getKey()) : entry.getKey();
+
+                map.put(key, freeze(factory, entry.getValue()));
+            }
+
+            frozen = new ObjectNode(factory, unmodifiableMap(map));
+        } else if (node instanceof ArrayNode) {
+            List<JsonNode> list = new ArrayList<>(node.size());
+
+            for (JsonNode element : node) {
+                list.add(freeze(factory, element));
+            }
+
+            frozen = new ArrayNode(factory, unmodifiableList(list));
+        } else if (interning != null && node instanceof TextNode) {
+            frozen = interning.intern((TextNode) node);
+        }
+
+        return frozen;
+    }
+
+    /**
+     * Method to get the compiled {@link JsonPointer} for an expression
+     * from the shared cache.
+     *
+     * @param   expression      The {@link String} respresentation of the
+     *                          {@link JsonPointer}.
+     *
+     * @return  The compiled {@link JsonPointer}.
+     */
+    protected static JsonPointer pointer(String expression) {
+        JsonPointer pointer = POINTERS.get(expression);
+
+        if (pointer == null) {
+            pointer = JsonPointer.compile(expression);
+
+            if (POINTERS.size() < POINTER_CACHE_SIZE) {
+                POINTERS.putIfAbsent(expression, pointer);
+            }
+        }
+
+        return pointer;
+    }
+
+    /**
+     * Convenience method to call {@link JsonNode#at(JsonPointer)}.
      *
      * @param   expression      The {@link String} respresentation of the
-     *                          {@link com.fasterxml.jackson.core.JsonPointer}.
+     *                          {@link JsonPointer}.
      *
      * @return  {@link JsonNode} that matches given
-     *          {@link com.fasterxml.jackson.core.JsonPointer}: if no match
+     *          {@link JsonPointer}: if no match
      *          exists, will return a {@link JsonNode} for which
      *          {@link com.fasterxml.jackson.core.TreeNode#isMissingNode()}
      *          returns {@code true}.
      */
     protected JsonNode nodeAt(String expression) {
-        return (expression != null) ? node.at(expression) : null;
+        return (expression != null) ? nodeAt(pointer(expression)) : null;
+    }
+
+    /**
+     * Convenience method to call {@link JsonNode#at(JsonPointer)}.
+     *
+     * @param   pointer         The {@link JsonPointer}.
+     *
+     * @return  See {@link #nodeAt(String)}.
+     */
+    protected JsonNode nodeAt(JsonPointer pointer) {
+        JsonNode node = null;
+
+        if (pointer != null) {
+            Source source = getSource();
+
+            if (source != null && source.format != null && this.node == null && (! pointer.matches())) {
+                try (JsonParser parser =
+                         new FilteringParserDelegate(source.createParser(),
+                                                     new JsonPointerBasedFilter(pointer),
+                                                     TokenFilter.Inclusion.ONLY_INCLUDE_ALL, false)) {
+                    node = mapper.readTree(parser);
+                } catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+
+                node = (node != null) ? freeze(mapper.getNodeFactory(), node) : MissingNode.getInstance();
+            } else {
+                node = getNode().at(pointer);
+            }
+        }
+
+        return node;
     }
 
     /**
@@ -71,18 +602,390 @@ public abstract class JSONBean implements Serializable {
         return (node != null && (! node.isMissingNode())) ? node.asText() : null;
     }
 
-    @Override
-    public String toString() {
-        String string = null;
+    /**
+     * Convenience method to get a {@code long} value for a node.
+     * See {@link #nodeAt(String)} and {@link JsonNode#asLong(long)}.
+     *
+     * @param   expression      See {@link #nodeAt(String)}.
+     * @param   defaultValue    The value to return if the node is missing
+     *                          or cannot be converted.
+     *
+     * @return  The {@code long} value.
+     */
+    protected long longAt(String expression, long defaultValue) {
+        JsonNode node = nodeAt(expression);
+
+        return (node != null) ? node.asLong(defaultValue) : defaultValue;
+    }
+
+    /**
+     * Convenience method to get an {@code int} value for a node.
+     * See {@link #nodeAt(String)} and {@link JsonNode#asInt(int)}.
+     *
+     * @param   expression      See {@link #nodeAt(String)}.
+     * @param   defaultValue    The value to return if the node is missing
+     *                          or cannot be converted.
+     *
+     * @return  The {@code int} value.
+     */
+    protected int intAt(String expression, int defaultValue) {
+        JsonNode node = nodeAt(expression);
+
+        return (node != null) ? node.asInt(defaultValue) : defaultValue;
+    }
+
+    /**
+     * Convenience method to get a {@code double} value for a node.
+     * See {@link #nodeAt(String)} and {@link JsonNode#asDouble(double)}.
+     *
+     * @param   expression      See {@link #nodeAt(String)}.
+     * @param   defaultValue    The value to return if the node is missing
+     *                          or cannot be converted.
+     *
+     * @return  The {@code double} value.
+     */
+    protected double doubleAt(String expression, double defaultValue) {
+        JsonNode node = nodeAt(expression);
+
+        return (node != null) ? node.asDouble(defaultValue) : defaultValue;
+    }
+
+    /**
+     * Convenience method to get a {@code boolean} value for a node.
+     * See {@link #nodeAt(String)} and {@link JsonNode#asBoolean(boolean)}.
+     *
+     * @param   expression      See {@link #nodeAt(String)}.
+     * @param   defaultValue    The value to return if the node is missing
+     *                          or cannot be converted.
+     *
+     * @return  The {@code boolean} value.
+     */
+    protected boolean booleanAt(String expression, boolean defaultValue) {
+        JsonNode node = nodeAt(expression);
+
+        return (node != null) ? node.asBoolean(defaultValue) : defaultValue;
+    }
+
+    /**
+     * Immutable retained source:  The compact UTF-8 JSON encoding
+     * ({@code format} is {@code null}), an encoding in another format, or
+     * an encoding spilled to a {@link SpillStore}.  A lazily parsed
+     * source that is not {@code retained} is released once the
+     * {@link JsonNode} is published.  The source is only valid while the
+     * subclass JSON text (see {@link #getSourceText()}) is the
+     * {@code text} instance it was retained with.
+     */
+    private static class Source {
+        private final JsonFactory format;
+        private final byte[] bytes;
+        private final SpillStore.Handle spilled;
+        private final boolean retained;
+        private final String text;
+
+        public Source(JsonFactory format, byte[] bytes, SpillStore.Handle spilled, boolean retained, String text) {
+            this.format = format;
+            this.bytes = bytes;
+            this.spilled = spilled;
+            this.retained = retained;
+            this.text = text;
+        }
+
+        public JsonParser createParser() throws IOException {
+            return (spilled != null) ? spilled.createParser(format) : format.createParser(bytes);
+        }
+
+        public byte[] toByteArray() {
+            return (spilled != null) ? spilled.toByteArray() : bytes;
+        }
+    }
+
+    /**
+     * Cached compact rendering and the subclass JSON text (see
+     * {@link #getSourceText()}) it was rendered from.
+     */
+    private static class Compact {
+        private final String string;
+        private final String text;
+
+        public Compact(String string, String text) {
+            this.string = string;
+            this.text = text;
+        }
+    }
+
+    /**
+     * {@link SerializableString} over pre-encoded UTF-8 bytes so that
+     * {@link JsonGenerator#writeRawValue(SerializableString)} copies them
+     * directly into the output buffer.
+     */
+    private static class RawValue implements SerializableString {
+        private final byte[] bytes;
+        private SerializedString string = null;
+
+        public RawValue(byte[] bytes) { this.bytes = requireNonNull(bytes, "bytes"); }
+
+        private SerializedString string() {
+            if (string == null) {
+                string = new SerializedString(new String(bytes, UTF_8));
+            }
+
+            return string;
+        }
+
+        @Override
+        public String getValue() { return string().getValue(); }
+
+        @Override
+        public int charLength() { return string().charLength(); }
+
+        @Override
+        public char[] asQuotedChars() { return string().asQuotedChars(); }
+
+        @Override
+        public byte[] asUnquotedUTF8() { return bytes; }
+
+        @Override
+        public byte[] asQuotedUTF8() { return string().asQuotedUTF8(); }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return string().appendQuotedUTF8(buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            return string().appendQuoted(buffer, offset);
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            int length = bytes.length;
+
+            if (offset + length <= buffer.length) {
+                System.arraycopy(bytes, 0, buffer, offset, length);
+            } else {
+                length = -1;
+            }
+
+            return length;
+        }
 
-        if (node != null) {
-            try {
-                string = mapper.writeValueAsString(node);
-            } catch (Exception exception) {
-                throw new IllegalStateException(exception);
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            return string().appendUnquoted(buffer, offset);
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            return string().writeQuotedUTF8(out);
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(bytes);
+
+            return bytes.length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) throws IOException {
+            return string().putQuotedUTF8(buffer);
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) throws IOException {
+            int length = bytes.length;
+
+            if (length <= buffer.remaining()) {
+                buffer.put(bytes);
+            } else {
+                length = -1;
+            }
+
+            return length;
+        }
+    }
+
+    /**
+     * Method to write this bean as compact (not indented) UTF-8 JSON to
+     * an {@link OutputStream}.  A retained compact UTF-8 source is copied
+     * directly.  The {@link OutputStream} is not closed.
+     *
+     * @param   out             The {@link OutputStream}.
+     *
+     * @throws  IOException     If the bean cannot be written.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Source source = getSource();
+
+        if (source != null && source.format == null) {
+            out.write(source.bytes);
+        } else {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                write(generator);
+            }
+        }
+    }
+
+    /**
+     * Method to write this bean as compact (not indented) JSON to a
+     * {@link Writer}.  The {@link Writer} is not closed.
+     *
+     * @param   writer          The {@link Writer}.
+     *
+     * @throws  IOException     If the bean cannot be written.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        String compact = getCompactString();
+
+        if (compact != null) {
+            writer.write(compact);
+        } else {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                write(generator);
+            }
+        }
+    }
+
+    /**
+     * Method to determine if the compact rendering returned by
+     * {@link #toCompactString()} should be cached (until the bean is
+     * modified).  Default implementation returns {@code false}.
+     *
+     * @return  {@code true} to cache; {@code false} otherwise.
+     */
+    protected boolean isCompactStringCached() { return false; }
+
+    /**
+     * Method to get this bean as compact (not indented) JSON.
+     *
+     * @return  The compact JSON {@link String} or {@code null} if this
+     *          bean has no {@link JsonNode}.
+     */
+    public String toCompactString() {
+        String string = getCompactString();
+
+        if (string == null) {
+            Source source = getSource();
+            JsonNode node = this.node;
+            String text = getSourceText();
+
+            if (source != null && source.format == null) {
+                string = new String(source.bytes, UTF_8);
+            } else if (source != null || getNode() != null) {
+                StringWriter writer = new StringWriter();
+
+                try {
+                    writeTo(writer);
+                } catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
+
+                string = writer.toString();
+            }
+
+            if (string != null && isCompactStringCached()) {
+                synchronized (this) {
+                    if (getSource() == source && (source != null || this.node == node) && getSourceText() == text) {
+                        this.compact = new Compact(string, text);
+                    }
+                }
+            }
+        }
+
+        return string;
+    }
+
+    /*
+     * The cached rendering is also validated against the subclass JSON
+     * text (see getSourceText()) which may be assigned without calling
+     * setNode(JsonNode) (e.g., by a persistence provider).
+     */
+    private String getCompactString() {
+        Compact compact = this.compact;
+
+        return (compact != null && compact.text == getSourceText()) ? compact.string : null;
+    }
+
+    /**
+     * A retained source is written as encoded (a compact UTF-8 source is
+     * not transcoded because the copy is cheaper than the conversion) and
+     * a {@link JsonNode} is encoded in the Smile or CBOR format if either
+     * is available on the class path (compact UTF-8 JSON otherwise).
+     *
+     * @serialData  The format name of the encoding (see
+     *              {@link JsonFactory#getFormatName()}; {@code null} for
+     *              JSON) and the encoding of the {@link JsonNode} as a
+     *              {@code byte[]} ({@code null} if none or if the
+     *              subclass serializes the JSON text (see
+     *              {@link #getSourceText()})).
+     *
+     * @param   out             The {@link ObjectOutputStream}.
+     *
+     * @throws  IOException     If the bean cannot be written.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        Source source = getSource();
+        JsonNode node = (source == null) ? this.node : null;
+        byte[] bytes = null;
+        JsonFactory format = null;
+
+        if (getSourceText() == null) {
+            if (source != null) {
+                bytes = source.toByteArray();
+                format = source.format;
+            } else if (node != null) {
+                ByteArrayBuilder builder = new ByteArrayBuilder();
+
+                format = JSONBeanTypeMap.BINARY_FORMAT;
+
+                try (JsonGenerator generator =
+                         ((format != null) ? format : mapper.getFactory()).createGenerator(builder)) {
+                    mapper.writeTree(generator, node);
+                }
+
+                bytes = builder.toByteArray();
+            }
+        }
+
+        String name = (format != null) ? format.getFormatName() : null;
+
+        if (JsonFactory.FORMAT_NAME_JSON.equals(name)) {
+            name = null;
+        }
+
+        out.defaultWriteObject();
+        out.writeObject(name);
+        out.writeObject(bytes);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        this.mapper = ObjectMapperConfiguration.MAPPER;
+        String name = (String) in.readObject();
+        byte[] bytes = (byte[]) in.readObject();
+        JsonFactory format = null;
+
+        if (name != null) {
+            format = JSONBeanTypeMap.getFormat(name);
+
+            if (format == null) {
+                throw new InvalidObjectException(name + ": format is not available");
             }
         }
 
+        this.source = (bytes != null) ? new Source(format, bytes, null, false, null) : null;
+        this.node = null;
+        this.compact = null;
+    }
+
+    @Override
+    public String toString() {
+        String string = toCompactString();
+
         return (string != null) ? string : super.toString();
     }
 }
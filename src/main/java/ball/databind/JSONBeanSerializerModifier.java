@@ -57,9 +57,7 @@ public class JSONBeanSerializerModifier extends BeanSerializerModifier {
 
         @Override
         public void serialize(Object value, JsonGenerator generator, SerializerProvider serializers) throws IOException {
-            if (value instanceof JSONBean && ((JSONBean) value).node != null) {
-                generator.writeTree(((JSONBean) value).node);
-            } else {
+            if (! (value instanceof JSONBean && ((JSONBean) value).write(generator))) {
                 serializer.serialize(value, generator, serializers);
             }
         }
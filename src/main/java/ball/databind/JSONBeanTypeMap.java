@@ -18,10 +18,17 @@ package ball.databind;
  * limitations under the License.
  * ##########################################################################
  */
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.NoArgsConstructor;
 
 import static lombok.AccessLevel.PROTECTED;
@@ -35,6 +42,247 @@ import static lombok.AccessLevel.PROTECTED;
 public abstract class JSONBeanTypeMap extends PolymorphicTypeMap {
     private static final long serialVersionUID = 8775770218915991160L;
 
+    static final JsonFactory BINARY_FORMAT =
+        newInstance("com.fasterxml.jackson.dataformat.smile.SmileFactory",
+                    "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+
+    private static final ConcurrentHashMap<String,JsonFactory> FORMATS = new ConcurrentHashMap<>();
+
+    /**
+     * {@link JSONBean} source retention modes (see
+     * {@link #getRetention()}).
+     */
+    public static enum Retention {
+        /**
+         * The {@link JSONBean} retains the parsed {@link JsonNode}.
+         */
+        TREE,
+        /**
+         * The {@link JSONBean} retains the compact UTF-8 encoding of its
+         * source (see {@link JSONBean#initialize(ObjectMapper,byte[],boolean)})
+         * and the {@link JsonNode} is parsed on first access.  The source
+         * is then released unless {@link #isPassThrough()}.  The
+         * parse-tree is not built during deserialization so
+         * {@link #initialize(Object,ObjectCodec,JsonNode)} is not called
+         * for {@link JSONBean}s.
+         */
+        LAZY,
+        /**
+         * The {@link JSONBean} retains only a compact binary encoding of
+         * its source in the {@link #getRetentionFormat()} format (see
+         * {@link JSONBean#initialize(ObjectMapper,JsonFactory,byte[])}).
+         * Falls back to {@link #LAZY} if no binary format is available.
+         */
+        BINARY;
+    }
+
+    /**
+     * Method to get the {@link Retention} mode for deserialized
+     * {@link JSONBean}s.  Default implementation returns
+     * {@link Retention#TREE}.
+     *
+     * @return  The {@link Retention} mode.
+     */
+    protected Retention getRetention() { return Retention.TREE; }
+
+    /**
+     * Method to get the {@link JsonFactory} for the
+     * {@link Retention#BINARY} encoding.  Default implementation returns
+     * a Smile or CBOR {@link JsonFactory} if either is available on the
+     * class path; {@code null} otherwise.
+     *
+     * @return  The {@link JsonFactory} (may be {@code null}).
+     */
+    protected JsonFactory getRetentionFormat() { return BINARY_FORMAT; }
+
+    /**
+     * Method to determine if {@link Retention#TREE} {@link JSONBean}s
+     * should also retain the compact UTF-8 encoding of their source so
+     * that {@link JSONBeanSerializerModifier} can write an unmodified
+     * bean as a raw value (a memory copy) rather than re-encoding its
+     * tree.  ({@link Retention#LAZY} {@link JSONBean}s retain their
+     * source until it is parsed and, if {@code true}, after.)  Default
+     * implementation returns {@code false}.
+     *
+     * @return  {@code true} to retain the source; {@code false}
+     *          otherwise.
+     */
+    protected boolean isPassThrough() { return false; }
+
+    /**
+     * Method to get the {@link SpillStore} for oversized
+     * {@link JSONBean}s.  If a {@link SpillStore} is configured, every
+     * deserialized {@link JSONBean}'s source is encoded once in the format
+     * it would otherwise be retained in (JSON for {@link Retention#LAZY}
+     * and {@link #isPassThrough() pass-through}; otherwise the
+     * {@link #getRetentionFormat()} format or JSON if none is available)
+     * and, if {@link SpillStore#accepts(int) accepted}, spilled to the
+     * store regardless of {@link #getRetention()} (see
+     * {@link JSONBean#initialize(ObjectMapper,JsonFactory,SpillStore.Handle)}).
+     * A {@link Retention#TREE} {@link JSONBean} that does not retain its
+     * source is first measured by encoding it to a counting sink (no
+     * buffer is allocated) and is encoded again only if spilled:  A
+     * configured {@link SpillStore} therefore adds the cost of one
+     * encoding to every such {@link JSONBean}.  Default implementation
+     * returns {@code null}.
+     *
+     * @return  The {@link SpillStore} (may be {@code null}).
+     */
+    protected SpillStore getSpillStore() { return null; }
+
+    @Override
+    protected void initialize(Object object, ObjectCodec codec, TokenBuffer buffer) throws IOException {
+        if (object instanceof JSONBean) {
+            JSONBean bean = (JSONBean) object;
+            ObjectMapper mapper = (ObjectMapper) codec;
+            Retention retention = getRetention();
+            boolean passThrough = (retention == Retention.TREE) && isPassThrough();
+            SpillStore store = getSpillStore();
+            /*
+             * A retained source is encoded once:  The same bytes are
+             * offered to the SpillStore and, if not spilled, retained.
+             * Otherwise, the source is only measured unless spilled.
+             */
+            JsonFactory format = null;
+
+            if (retention != Retention.LAZY && (! passThrough)) {
+                format = getRetentionFormat();
+            }
+
+            JsonFactory encoding = (format != null) ? format : mapper.getFactory();
+            byte[] bytes = null;
+
+            if (retention != Retention.TREE || passThrough) {
+                bytes = toByteArray(encoding, buffer);
+            }
+
+            boolean spill = false;
+
+            if (store != null) {
+                spill = store.accepts((bytes != null) ? bytes.length : length(encoding, buffer));
+            }
+
+            if (spill) {
+                if (bytes == null) {
+                    bytes = toByteArray(encoding, buffer);
+                }
+
+                bean.initialize(mapper, encoding, store.store(bytes));
+            } else if (retention == Retention.TREE) {
+                super.initialize(object, codec, buffer);
+
+                if (passThrough) {
+                    bean.setSource(bytes);
+                }
+            } else if (format != null) {
+                bean.initialize(mapper, format, bytes);
+            } else {
+                bean.initialize(mapper, bytes, isPassThrough());
+            }
+        } else {
+            super.initialize(object, codec, buffer);
+        }
+    }
+
+    /**
+     * Method to encode a {@link TokenBuffer} as compact UTF-8 JSON.
+     *
+     * @param   mapper          The {@link ObjectMapper}.
+     * @param   buffer          The {@link TokenBuffer}.
+     *
+     * @return  The encoded bytes.
+     *
+     * @throws  IOException     If the {@link TokenBuffer} cannot be
+     *                          encoded.
+     */
+    protected static byte[] toByteArray(ObjectMapper mapper, TokenBuffer buffer) throws IOException {
+        return toByteArray(mapper.getFactory(), buffer);
+    }
+
+    /**
+     * Method to encode a {@link TokenBuffer} with a {@link JsonFactory}.
+     *
+     * @param   format          The {@link JsonFactory}.
+     * @param   buffer          The {@link TokenBuffer}.
+     *
+     * @return  The encoded bytes.
+     *
+     * @throws  IOException     If the {@link TokenBuffer} cannot be
+     *                          encoded.
+     */
+    protected static byte[] toByteArray(JsonFactory format, TokenBuffer buffer) throws IOException {
+        ByteArrayBuilder builder = new ByteArrayBuilder();
+
+        try (JsonGenerator generator = format.createGenerator(builder)) {
+            buffer.serialize(generator);
+        }
+
+        return builder.toByteArray();
+    }
+
+    /**
+     * Method to get the shared {@link JsonFactory} for a format name (see
+     * {@link JsonFactory#getFormatName()}) so deserialized
+     * {@link JSONBean}s do not each create a {@link JsonFactory} (see
+     * {@link JSONBean#initialize(ObjectMapper,JsonFactory,byte[])}).
+     * Formats other than {@link #BINARY_FORMAT} are resolved to the
+     * {@code com.fasterxml.jackson.dataformat} implementation.
+     *
+     * @param   name            The format name.
+     *
+     * @return  The {@link JsonFactory} or {@code null} if the format is
+     *          not available.
+     */
+    static JsonFactory getFormat(String name) {
+        JsonFactory format = FORMATS.get(name);
+
+        if (format == null) {
+            if (BINARY_FORMAT != null && BINARY_FORMAT.getFormatName().equals(name)) {
+                format = BINARY_FORMAT;
+            } else {
+                format =
+                    newInstance("com.fasterxml.jackson.dataformat."
+                                + name.toLowerCase(Locale.ROOT) + "." + name + "Factory");
+            }
+
+            if (format != null) {
+                JsonFactory existing = FORMATS.putIfAbsent(name, format);
+
+                format = (existing != null) ? existing : format;
+            }
+        }
+
+        return format;
+    }
+
+    private static int length(JsonFactory format, TokenBuffer buffer) throws IOException {
+        Counter counter = new Counter();
+
+        try (JsonGenerator generator = format.createGenerator(counter)) {
+            buffer.serialize(generator);
+        }
+
+        return (int) Math.min(counter.count, Integer.MAX_VALUE);
+    }
+
+    private static JsonFactory newInstance(String... names) {
+        JsonFactory factory = null;
+
+        for (String name : names) {
+            try {
+                factory =
+                    Class.forName(name, true, JSONBeanTypeMap.class.getClassLoader())
+                    .asSubclass(JsonFactory.class)
+                    .getConstructor().newInstance();
+                break;
+            } catch (ReflectiveOperationException | LinkageError exception) {
+                continue;
+            }
+        }
+
+        return factory;
+    }
+
     @Override
     protected void initialize(Object object, ObjectCodec codec, JsonNode node) throws IOException {
         super.initialize(object, codec, node);
@@ -43,7 +291,20 @@ public abstract class JSONBeanTypeMap extends PolymorphicTypeMap {
             JSONBean bean = (JSONBean) object;
 
             bean.mapper = (ObjectMapper) codec;
-            bean.node = node.deepCopy();
+            bean.node = JSONBean.freeze(bean.mapper.getNodeFactory(), node);
         }
     }
+
+    /**
+     * {@link OutputStream} that only counts the bytes written to it.
+     */
+    private static class Counter extends OutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int b) { count += 1; }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) { count += length; }
+    }
 }
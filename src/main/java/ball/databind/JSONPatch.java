@@ -0,0 +1,402 @@
+package ball.databind;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.NoArgsConstructor;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * JSON Merge Patch (RFC 7386), JSON Patch (RFC 6902), and diff over
+ * read-only {@link JsonNode} trees (see
+ * {@link JSONBean#freeze(JsonNodeFactory,JsonNode)}).  Patches are
+ * applied persistently:  Only the containers on the path to a change are
+ * rebuilt and every unchanged sub-tree is shared with the target.
+ * Conversely, {@link #diff(JsonNodeFactory,JsonNode,JsonNode)} skips
+ * shared sub-trees so diffing a patched tree against its predecessor
+ * costs time proportional to the change.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class JSONPatch {
+    private static final Comparator<JsonNode> NUMERIC =
+        (left, right) -> ((left.isNumber() && right.isNumber())
+                              ? left.decimalValue().compareTo(right.decimalValue())
+                              : (left.equals(right) ? 0 : 1));
+
+    /**
+     * Method to apply a JSON Merge Patch (RFC 7386).
+     *
+     * @param   factory         The {@link JsonNodeFactory}.
+     * @param   target          The read-only target {@link JsonNode}
+     *                          (may be {@code null}).
+     * @param   patch           The merge patch.
+     *
+     * @return  The read-only patched {@link JsonNode} (the target itself
+     *          if the patch does not change it).
+     */
+    public static JsonNode merge(JsonNodeFactory factory, JsonNode target, JsonNode patch) {
+        JsonNode result = target;
+
+        if (patch.isObject()) {
+            Map<String,JsonNode> map = new LinkedHashMap<>();
+            boolean changed = (target == null || (! target.isObject()));
+
+            if (! changed) {
+                target.fields().forEachRemaining(t -> map.put(t.getKey(), t.getValue()));
+            }
+
+            Iterator<Map.Entry<String,JsonNode>> iterator = patch.fields();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String,JsonNode> entry = iterator.next();
+                String name = entry.getKey();
+                JsonNode value = entry.getValue();
+
+                if (value.isNull()) {
+                    changed |= (map.remove(name) != null);
+                } else {
+                    JsonNode previous = map.get(name);
+                    JsonNode next = merge(factory, previous, value);
+
+                    if (next != previous) {
+                        map.put(name, next);
+                        changed = true;
+                    }
+                }
+            }
+
+            if (changed) {
+                result = new ObjectNode(factory, unmodifiableMap(map));
+            }
+        } else if (target == null || (! target.equals(patch))) {
+            result = JSONBean.freeze(factory, patch);
+        }
+
+        return result;
+    }
+
+    /**
+     * Method to apply a JSON Patch (RFC 6902).  The patch is applied
+     * atomically:  If any operation fails, the target is unchanged.
+     *
+     * @param   factory         The {@link JsonNodeFactory}.
+     * @param   target          The read-only target {@link JsonNode}.
+     * @param   patch           The patch ({@link ArrayNode} of
+     *                          operations).
+     *
+     * @return  The read-only patched {@link JsonNode}.
+     *
+     * @throws  IllegalArgumentException
+     *                          If the patch is malformed or an operation
+     *                          fails.
+     */
+    public static JsonNode apply(JsonNodeFactory factory, JsonNode target, JsonNode patch) {
+        if (! patch.isArray()) {
+            throw new IllegalArgumentException("JSON Patch is not an array: " + patch);
+        }
+
+        JsonNode result = target;
+
+        for (JsonNode operation : patch) {
+            String op = required(operation, "op").asText();
+            JsonPointer path = pointer(operation, "path");
+
+            switch (op) {
+            case "add":
+                result = add(factory, result, path, JSONBean.freeze(factory, required(operation, "value")), false);
+                break;
+
+            case "remove":
+                result = remove(factory, result, path);
+                break;
+
+            case "replace":
+                result = add(factory, result, path, JSONBean.freeze(factory, required(operation, "value")), true);
+                break;
+
+            case "move":
+                JsonPointer from = pointer(operation, "from");
+
+                if (path.toString().startsWith(from.toString() + "/")) {
+                    throw new IllegalArgumentException("Cannot move " + from + " into itself: " + operation);
+                }
+
+                JsonNode moved = get(result, from);
+
+                result = add(factory, remove(factory, result, from), path, moved, false);
+                break;
+
+            case "copy":
+                result = add(factory, result, path, get(result, pointer(operation, "from")), false);
+                break;
+
+            case "test":
+                if (! get(result, path).equals(NUMERIC, required(operation, "value"))) {
+                    throw new IllegalArgumentException("Test failed: " + operation);
+                }
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unrecognized operation: " + operation);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Method to compute a JSON Patch (RFC 6902) that transforms one
+     * {@link JsonNode} into another.  Object members are compared by
+     * name and array elements by index; sub-trees shared by the two
+     * arguments are not examined.
+     *
+     * @param   factory         The {@link JsonNodeFactory}.
+     * @param   source          The source {@link JsonNode} (may be
+     *                          {@code null}).
+     * @param   target          The target {@link JsonNode} (may be
+     *                          {@code null}).
+     *
+     * @return  The read-only patch ({@link ArrayNode} of operations).
+     */
+    public static JsonNode diff(JsonNodeFactory factory, JsonNode source, JsonNode target) {
+        List<JsonNode> operations = new ArrayList<>();
+
+        if (source == null) {
+            if (target != null) {
+                operations.add(operation(factory, "add", "", target));
+            }
+        } else if (target == null) {
+            operations.add(operation(factory, "remove", "", null));
+        } else {
+            diff(factory, operations, "", source, target);
+        }
+
+        return new ArrayNode(factory, unmodifiableList(operations));
+    }
+
+    private static void diff(JsonNodeFactory factory, List<JsonNode> operations,
+                             String path, JsonNode source, JsonNode target) {
+        if (source == target) {
+            /*
+             * Shared (unchanged) sub-tree
+             */
+        } else if (source.isObject() && target.isObject()) {
+            Iterator<Map.Entry<String,JsonNode>> iterator = source.fields();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String,JsonNode> entry = iterator.next();
+                String child = path + "/" + escape(entry.getKey());
+                JsonNode value = target.get(entry.getKey());
+
+                if (value != null) {
+                    diff(factory, operations, child, entry.getValue(), value);
+                } else {
+                    operations.add(operation(factory, "remove", child, null));
+                }
+            }
+
+            iterator = target.fields();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String,JsonNode> entry = iterator.next();
+
+                if (! source.has(entry.getKey())) {
+                    operations.add(operation(factory, "add", path + "/" + escape(entry.getKey()), entry.getValue()));
+                }
+            }
+        } else if (source.isArray() && target.isArray()) {
+            int common = Math.min(source.size(), target.size());
+
+            for (int i = 0; i < common; i += 1) {
+                diff(factory, operations, path + "/" + i, source.get(i), target.get(i));
+            }
+
+            for (int i = source.size() - 1; i >= common; i -= 1) {
+                operations.add(operation(factory, "remove", path + "/" + i, null));
+            }
+
+            for (int i = common; i < target.size(); i += 1) {
+                operations.add(operation(factory, "add", path + "/" + i, target.get(i)));
+            }
+        } else if (! source.equals(target)) {
+            operations.add(operation(factory, "replace", path, target));
+        }
+    }
+
+    private static JsonNode operation(JsonNodeFactory factory, String op, String path, JsonNode value) {
+        Map<String,JsonNode> map = new LinkedHashMap<>();
+
+        map.put("op", factory.textNode(op));
+        map.put("path", factory.textNode(path));
+
+        if (value != null) {
+            map.put("value", value);
+        }
+
+        return new ObjectNode(factory, unmodifiableMap(map));
+    }
+
+    private static String escape(String token) {
+        return token.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static JsonNode required(JsonNode operation, String name) {
+        JsonNode value = operation.get(name);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Missing `" + name + "': " + operation);
+        }
+
+        return value;
+    }
+
+    private static JsonPointer pointer(JsonNode operation, String name) {
+        return JsonPointer.compile(required(operation, name).asText());
+    }
+
+    private static JsonNode get(JsonNode node, JsonPointer path) {
+        JsonNode value = (node != null) ? node.at(path) : null;
+
+        if (value == null || value.isMissingNode()) {
+            throw new IllegalArgumentException("No value at " + path);
+        }
+
+        return value;
+    }
+
+    private static int index(JsonNode array, JsonPointer path, boolean append) {
+        String token = path.getMatchingProperty();
+        int index = "-".equals(token) && append ? array.size() : path.getMatchingIndex();
+
+        if (index < 0 || index > (append ? array.size() : array.size() - 1)) {
+            throw new IllegalArgumentException("Invalid array index `" + token + "'");
+        }
+
+        return index;
+    }
+
+    private static JsonNode add(JsonNodeFactory factory,
+                                JsonNode node, JsonPointer path, JsonNode value, boolean replace) {
+        JsonNode result = null;
+
+        if (path.matches()) {
+            result = value;
+        } else if (node != null && node.isObject()) {
+            String name = path.getMatchingProperty();
+            JsonPointer tail = path.tail();
+            Map<String,JsonNode> map = new LinkedHashMap<>();
+
+            node.fields().forEachRemaining(t -> map.put(t.getKey(), t.getValue()));
+
+            if (! (tail.matches() || map.containsKey(name))) {
+                throw new IllegalArgumentException("No value at " + path);
+            } else if (! tail.matches()) {
+                map.put(name, add(factory, map.get(name), tail, value, replace));
+            } else if (replace && (! map.containsKey(name))) {
+                throw new IllegalArgumentException("No value at " + path);
+            } else {
+                map.put(name, value);
+            }
+
+            result = new ObjectNode(factory, unmodifiableMap(map));
+        } else if (node != null && node.isArray()) {
+            JsonPointer tail = path.tail();
+            List<JsonNode> list = new ArrayList<>();
+
+            node.forEach(list::add);
+
+            if (tail.matches()) {
+                if (replace) {
+                    list.set(index(node, path, false), value);
+                } else {
+                    list.add(index(node, path, true), value);
+                }
+            } else {
+                int index = index(node, path, false);
+
+                list.set(index, add(factory, list.get(index), tail, value, replace));
+            }
+
+            result = new ArrayNode(factory, unmodifiableList(list));
+        } else {
+            throw new IllegalArgumentException("No container at " + path);
+        }
+
+        return result;
+    }
+
+    private static JsonNode remove(JsonNodeFactory factory, JsonNode node, JsonPointer path) {
+        JsonNode result = null;
+
+        if (path.matches()) {
+            throw new IllegalArgumentException("Cannot remove the document root");
+        } else if (node != null && node.isObject()) {
+            String name = path.getMatchingProperty();
+            JsonPointer tail = path.tail();
+            Map<String,JsonNode> map = new LinkedHashMap<>();
+
+            node.fields().forEachRemaining(t -> map.put(t.getKey(), t.getValue()));
+
+            if (! map.containsKey(name)) {
+                throw new IllegalArgumentException("No value at " + path);
+            }
+
+            if (tail.matches()) {
+                map.remove(name);
+            } else {
+                map.put(name, remove(factory, map.get(name), tail));
+            }
+
+            result = new ObjectNode(factory, unmodifiableMap(map));
+        } else if (node != null && node.isArray()) {
+            JsonPointer tail = path.tail();
+            List<JsonNode> list = new ArrayList<>();
+            int index = index(node, path, false);
+
+            node.forEach(list::add);
+
+            if (tail.matches()) {
+                list.remove(index);
+            } else {
+                list.set(index, remove(factory, list.get(index), tail));
+            }
+
+            result = new ArrayNode(factory, unmodifiableList(list));
+        } else {
+            throw new IllegalArgumentException("No value at " + path);
+        }
+
+        return result;
+    }
+}
@@ -20,7 +20,9 @@ package ball.databind;
  */
 import ball.util.PropertiesImpl;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationConfig;
 import com.fasterxml.jackson.databind.DeserializationContext;
@@ -29,32 +31,62 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.AbstractDeserializer;
 import com.fasterxml.jackson.databind.deser.BeanDeserializer;
 import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
-import com.fasterxml.jackson.databind.node.TreeTraversingParser;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import java.beans.BeanInfo;
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
 import lombok.ToString;
 import org.apache.commons.lang3.StringUtils;
 
 import static java.beans.Introspector.getBeanInfo;
 import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Class suitable for mapping polymorphic subtypes.  Subclasses can specify
  * the mapping in a {@link java.util.Properties} resource which will be
- * automatically loaded on instantiation.
+ * automatically loaded on instantiation.  Subclasses annotated with
+ * {@link CompiledTypeMap} are populated from the registration class
+ * generated from that resource at build time.
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 public abstract class PolymorphicTypeMap extends TreeMap<Class<?>,Class<?>[]> {
     private static final long serialVersionUID = -4465979259676184876L;
 
+    /*
+     * Compiled SubtypeIndex cache keyed (weakly, through ClassValue) by
+     * PolymorphicTypeMap subclass and then by supertype and subtypes.
+     */
+    private static final ClassValue<ConcurrentMap<List<Class<?>>,SubtypeIndex>> INDEXES =
+        new ClassValue<ConcurrentMap<List<Class<?>>,SubtypeIndex>>() {
+            @Override
+            protected ConcurrentMap<List<Class<?>>,SubtypeIndex> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    /** @serial */ private final boolean treeRequired;
+    /** @serial */ private final boolean bufferRequired;
+
     /**
      * Sole constructor.
      */
@@ -62,37 +94,83 @@ public abstract class PolymorphicTypeMap extends TreeMap<Class<?>,Class<?>[]> {
         super(comparing(Class::getName));
 
         try {
-            PropertiesImpl properties = new PropertiesImpl();
-            String name = getClass().getSimpleName() + ".properties";
-            InputStream in = getClass().getResourceAsStream(name);
-
-            if (in != null) {
-                try {
-                    properties.load(in);
-                } finally {
-                    in.close();
-                }
+            Registrations registrations = getRegistrations();
+
+            if (registrations != null) {
+                registrations.register(this);
+            } else {
+                load();
             }
+        } catch (Exception exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
 
-            ClassLoader loader = getClass().getClassLoader();
-            Package pkg = getClass().getPackage();
+        treeRequired = isOverridden("initialize", Object.class, ObjectCodec.class, JsonNode.class);
+        bufferRequired = treeRequired || isOverridden("initialize", Object.class, ObjectCodec.class, TokenBuffer.class);
+    }
 
-            for (String key : properties.stringPropertyNames()) {
-                TreeSet<Class<?>> value = new TreeSet<>(comparing(Class::getName));
+    private Registrations getRegistrations() throws Exception {
+        Registrations registrations = null;
 
-                for (String substring : properties.getProperty(key).split("[,\\p{Space}]+")) {
-                    substring = substring.trim();
+        if (getClass().isAnnotationPresent(CompiledTypeMap.class)) {
+            try {
+                registrations =
+                    Class.forName(getClass().getName() + CompiledTypeMap.SUFFIX, false, getClass().getClassLoader())
+                    .asSubclass(Registrations.class)
+                    .getConstructor().newInstance();
+            } catch (ClassNotFoundException exception) {
+            }
+        }
 
-                    if (! StringUtils.isEmpty(substring)) {
-                        value.add(getClassFor(loader, pkg, substring));
-                    }
+        return registrations;
+    }
+
+    private void load() throws Exception {
+        PropertiesImpl properties = new PropertiesImpl();
+        String name = getClass().getSimpleName() + ".properties";
+        InputStream in = getClass().getResourceAsStream(name);
+
+        if (in != null) {
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        ClassLoader loader = getClass().getClassLoader();
+        Package pkg = getClass().getPackage();
+
+        for (String key : properties.stringPropertyNames()) {
+            TreeSet<Class<?>> value = new TreeSet<>(comparing(Class::getName));
+
+            for (String substring : properties.getProperty(key).split("[,\\p{Space}]+")) {
+                substring = substring.trim();
+
+                if (! StringUtils.isEmpty(substring)) {
+                    value.add(getClassFor(loader, pkg, substring));
                 }
+            }
+
+            put(getClassFor(loader, pkg, key), value.toArray(new Class<?>[] { }));
+        }
+    }
 
-                put(getClassFor(loader, pkg, key), value.toArray(new Class<?>[] { }));
+    private boolean isOverridden(String name, Class<?>... parameters) {
+        boolean isOverridden = false;
+
+        for (Class<?> type = getClass(); type != PolymorphicTypeMap.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                isOverridden |=
+                    method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), parameters);
+            }
+
+            if (isOverridden) {
+                break;
             }
-        } catch (Exception exception) {
-            throw new ExceptionInInitializerError(exception);
         }
+
+        return isOverridden;
     }
 
     private Class<?> getClassFor(ClassLoader loader, Package pkg, String name) throws Exception {
@@ -107,6 +185,22 @@ public abstract class PolymorphicTypeMap extends TreeMap<Class<?>,Class<?>[]> {
         return cls;
     }
 
+    /**
+     * Interface implemented by the registration classes generated for
+     * {@link CompiledTypeMap}-annotated {@link PolymorphicTypeMap}
+     * subclasses.
+     */
+    public interface Registrations {
+
+        /**
+         * Method to register the compiled mappings.
+         *
+         * @param       map     The {@link PolymorphicTypeMap} to
+         *                      populate.
+         */
+        public void register(PolymorphicTypeMap map);
+    }
+
     /**
      * Method to get a {@link BeanDeserializerModifier} for this
      * {@link PolymorphicTypeMap}.
@@ -132,6 +226,170 @@ public abstract class PolymorphicTypeMap extends TreeMap<Class<?>,Class<?>[]> {
     protected void initialize(Object object, ObjectCodec codec, JsonNode node) throws IOException {
     }
 
+    /**
+     * Callback from {@link JsonDeserializer} implementation to allow
+     * subclass implementations to initialize the resulting bean with the
+     * buffered tokens ({@link TokenBuffer}) of the source document.  The
+     * default implementation builds the parse-tree from the
+     * {@link TokenBuffer} and calls
+     * {@link #initialize(Object,ObjectCodec,JsonNode)} only if a subclass
+     * overrides that method.  Subclasses that do not require the
+     * parse-tree may override this method to avoid materializing it.
+     *
+     * @param   object          The {@link Object} to initialize.
+     * @param   codec           The {@link ObjectCodec}.
+     * @param   buffer          The {@link TokenBuffer}.
+     *
+     * @throws  IOException     If there is a problem initializing the
+     *                          {@link JSONBean}.
+     */
+    protected void initialize(Object object, ObjectCodec codec, TokenBuffer buffer) throws IOException {
+        if (treeRequired) {
+            try (JsonParser parser = buffer.asParser(codec)) {
+                parser.nextToken();
+
+                initialize(object, codec, (JsonNode) codec.readTree(parser));
+            }
+        }
+    }
+
+    /**
+     * Method to compile the subtype index for every supertype in this
+     * {@link PolymorphicTypeMap}.  The compiled indexes are shared (by
+     * every {@link com.fasterxml.jackson.databind.ObjectMapper} configured
+     * with an instance of this {@link PolymorphicTypeMap} class) so this
+     * method may be called at application start-up to avoid
+     * introspection when {@link com.fasterxml.jackson.databind.ObjectMapper}s
+     * are created.
+     */
+    public void prepare() {
+        for (Map.Entry<Class<?>,Class<?>[]> entry : entrySet()) {
+            getSubtypeIndex(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private SubtypeIndex getSubtypeIndex(Class<?> supertype, Class<?>... subtypes) {
+        Class<?>[] key = new Class<?>[subtypes.length + 1];
+
+        key[0] = supertype;
+        System.arraycopy(subtypes, 0, key, 1, subtypes.length);
+
+        return INDEXES.get(getClass())
+                   .computeIfAbsent(Arrays.asList(key),
+                                    k -> new SubtypeIndex(supertype, subtypes, isAdaptive(),
+                                                          getSignatureCacheSize(), getSignatureCacheEviction()));
+    }
+
+    /**
+     * Method to get the maximum size of the (per-supertype) field-name
+     * signature cache.  If greater than zero, the resolved subtype (or
+     * the absence of a match) is cached keyed on the sequence of a
+     * document's field names so documents with a previously seen shape
+     * are resolved with a single hash lookup.  Default implementation
+     * returns {@code 0} (disabled).
+     *
+     * @return  The maximum number of cached signatures.
+     */
+    protected int getSignatureCacheSize() { return 0; }
+
+    /**
+     * Method to get the signature cache {@link Eviction} policy (see
+     * {@link #getSignatureCacheSize()}).  Default implementation returns
+     * {@link Eviction#SECOND_CHANCE}.
+     *
+     * @return  The {@link Eviction} policy.
+     */
+    protected Eviction getSignatureCacheEviction() { return Eviction.SECOND_CHANCE; }
+
+    /**
+     * Method to get the signature cache (see
+     * {@link #getSignatureCacheSize()}) statistics for a supertype.
+     *
+     * @param   supertype       The supertype {@link Class}.
+     *
+     * @return  The {@link CacheStatistics} or {@code null} if the
+     *          supertype is not mapped or the cache is disabled.
+     */
+    public CacheStatistics getSignatureCacheStatistics(Class<?> supertype) {
+        CacheStatistics statistics = null;
+
+        if (containsKey(supertype)) {
+            SignatureCache cache = getSubtypeIndex(supertype, get(supertype)).cache;
+
+            if (cache != null) {
+                statistics = cache.getStatistics();
+            }
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Signature cache eviction policies (see
+     * {@link #getSignatureCacheEviction()}).
+     */
+    public static enum Eviction {
+        /**
+         * Evict the oldest signature.
+         */
+        FIFO,
+        /**
+         * Evict the oldest signature that has not been hit since it was
+         * last considered for eviction (an approximation of LRU).
+         */
+        SECOND_CHANCE;
+    }
+
+    /**
+     * Signature cache statistics (see
+     * {@link #getSignatureCacheStatistics(Class)}).
+     *
+     * {@bean.info}
+     */
+    @Getter @ToString
+    public static class CacheStatistics {
+        private final long size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        private CacheStatistics(long size, long hits, long misses, long evictions) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+    }
+
+    /**
+     * Method to determine if subtype resolution should be adaptive.  In
+     * adaptive mode, resolutions are counted per subtype and candidates
+     * are periodically re-ordered by frequency.  A promoted candidate is
+     * only accepted if the document is missing a distinguishing property
+     * of every candidate it was promoted ahead of so the resolved subtype
+     * is always the same as the first match in declaration order.
+     * Default implementation returns {@code false}.
+     *
+     * @return  {@code true} if adaptive; {@code false} otherwise.
+     */
+    protected boolean isAdaptive() { return false; }
+
+    /**
+     * Method to get the adaptive-mode (see {@link #isAdaptive()})
+     * resolution counts for a supertype.
+     *
+     * @param   supertype       The supertype {@link Class}.
+     *
+     * @return  The {@link Map} of subtype to count in the current probe
+     *          order with the supertype mapped to the count of documents
+     *          that matched no subtype (subtypes that can never be the
+     *          first match are omitted).  The {@link Map} is empty if the
+     *          supertype is not mapped or the mode is not adaptive.
+     */
+    public Map<Class<?>,Long> getSubtypeCounts(Class<?> supertype) {
+        return containsKey(supertype) ? getSubtypeIndex(supertype, get(supertype)).getCounts() : new LinkedHashMap<>();
+    }
+
     @Override
     public Class<?>[] put(Class<?> key, Class<?>[] value) {
         for (Class<?> subtype : value) {
@@ -143,90 +401,482 @@ public abstract class PolymorphicTypeMap extends TreeMap<Class<?>,Class<?>[]> {
         return super.put(key, value);
     }
 
+    /**
+     * Compiled subtype index.  Each property name is interned to an
+     * integer id and each candidate subtype's required property names
+     * are compiled to a bit mask so that a document's subtype may be
+     * resolved with a single pass over its field names followed by
+     * (first-match, in order) mask comparisons.
+     *
+     * In adaptive mode, each candidate is also compiled to a mask of
+     * distinguishing properties: one property of each earlier candidate
+     * that the candidate itself does not require.  A document that
+     * matches the candidate and has none of those properties cannot match
+     * any earlier candidate so the candidate may be probed out of order.
+     * (Candidates that require a superset of an earlier candidate's
+     * properties can never be the first match and are not probed.)
+     */
     @ToString
-    private class DeserializerModifier extends BeanDeserializerModifier {
-        public DeserializerModifier() { super(); }
+    private static class SubtypeIndex {
+        private static final int REORDER_INTERVAL = 4096;
+
+        private final Class<?> supertype;
+        private final Class<?>[] subtypes;
+        private final HashMap<String,Integer> ids = new HashMap<>();
+        private final long[][] required;
+        private final int words;
+        private final long[][] distinct;
+        private final LongAdder[] counts;
+        private volatile int[] probe = null;
+        private final SignatureCache cache;
+
+        public SubtypeIndex(Class<?> supertype, Class<?>[] subtypes, boolean adaptive,
+                            int cacheSize, Eviction eviction) {
+            this.supertype = requireNonNull(supertype, "supertype");
+            this.subtypes = subtypes.clone();
+            this.required = new long[subtypes.length][];
+            this.distinct = adaptive ? new long[subtypes.length][] : null;
+            this.counts = adaptive ? new LongAdder[subtypes.length + 1] : null;
+            this.cache = (cacheSize > 0) ? new SignatureCache(cacheSize, eviction) : null;
+
+            try {
+                BitSet[] sets = new BitSet[subtypes.length];
+
+                for (int i = 0; i < subtypes.length; i += 1) {
+                    if (! supertype.isAssignableFrom(subtypes[i])) {
+                        throw new IllegalArgumentException(subtypes[i].getName()
+                                                           + " is not a subclass of " + supertype.getName());
+                    }
 
-        @Override
-        public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription description, JsonDeserializer<?> deserializer) {
-            Class<?> key = description.getBeanClass();
+                    BeanInfo info = getBeanInfo(subtypes[i], supertype);
 
-            if (containsKey(key)) {
-                deserializer =
-                    (deserializer instanceof BeanDeserializer)
-                        ? new BeanDeserializerImpl((BeanDeserializer) deserializer, key, get(key))
-                        : new AbstractDeserializerImpl(description, key, get(key));
+                    sets[i] = new BitSet();
+
+                    for (PropertyDescriptor property : info.getPropertyDescriptors()) {
+                        Integer id = ids.get(property.getName());
+
+                        if (id == null) {
+                            id = ids.size();
+                            ids.put(property.getName(), id);
+                        }
+
+                        sets[i].set(id);
+                    }
+                }
+
+                words = (ids.size() + 63) >>> 6;
+
+                for (int i = 0; i < sets.length; i += 1) {
+                    required[i] = Arrays.copyOf(sets[i].toLongArray(), words);
+                }
+            } catch (Exception exception) {
+                throw new ExceptionInInitializerError(exception);
             }
 
-            return deserializer;
-        }
+            if (adaptive) {
+                int[] probe = new int[subtypes.length];
+                int live = 0;
 
-        private class BeanInfoList extends ArrayList<BeanInfo> {
-            private static final long serialVersionUID = 1008165295877024242L;
+                for (int i = 0; i < subtypes.length; i += 1) {
+                    BitSet set = new BitSet();
 
-            private final Class<?> supertype;
+                    for (int j = 0; j < i; j += 1) {
+                        BitSet difference = BitSet.valueOf(required[j]);
 
-            public BeanInfoList(Class<?> supertype, Class<?>... subtypes) {
-                super(subtypes.length);
+                        difference.andNot(BitSet.valueOf(required[i]));
 
-                this.supertype = requireNonNull(supertype, "supertype");
+                        if (difference.isEmpty()) {
+                            set = null;
+                            break;
+                        }
 
-                try {
-                    for (Class<?> subtype : subtypes) {
-                        if (supertype.isAssignableFrom(subtype)) {
-                            add(getBeanInfo(subtype, supertype));
-                        } else {
-                            throw new IllegalArgumentException(subtype.getName()
-                                                               + " is not a subclass of " + supertype.getName());
+                        if (! difference.intersects(set)) {
+                            set.set(difference.nextSetBit(0));
                         }
                     }
-                } catch (Exception exception) {
-                    throw new ExceptionInInitializerError(exception);
+
+                    if (set != null) {
+                        distinct[i] = Arrays.copyOf(set.toLongArray(), words);
+                        probe[live++] = i;
+                    }
                 }
+
+                for (int i = 0; i < counts.length; i += 1) {
+                    counts[i] = new LongAdder();
+                }
+
+                this.probe = Arrays.copyOf(probe, live);
             }
+        }
 
-            public Class<?> supertype() { return supertype; }
+        public Class<?> supertype() { return supertype; }
+
+        public long[] newMask() { return new long[words]; }
+
+        public Signature newSignature() { return (cache != null) ? new Signature() : null; }
+
+        /**
+         * Method to copy the current value from the live
+         * {@link JsonParser} to the {@link TokenBuffer} while marking
+         * the field names present.  Copying stops as soon as the
+         * subtype is known (unless {@code complete} is specified).  If a
+         * {@link Signature} is specified, the field names are collected
+         * (rather than marked) and the complete value is copied.
+         *
+         * @return  The {@link JsonParser} to replay the buffered
+         *          tokens followed by the remainder of the live
+         *          {@link JsonParser} (positioned on the first token).
+         */
+        public JsonParser scan(JsonParser parser, TokenBuffer buffer,
+                               long[] present, Signature signature, boolean complete) throws IOException {
+            JsonToken token = parser.currentToken();
+            boolean done = false;
+
+            if (token == JsonToken.START_OBJECT || token == JsonToken.FIELD_NAME || token == JsonToken.END_OBJECT) {
+                buffer.writeStartObject();
+
+                if (token == JsonToken.START_OBJECT) {
+                    token = parser.nextToken();
+                }
+
+                while (token == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+
+                    if (signature != null) {
+                        signature.add(name);
+                    } else {
+                        mark(present, name);
+                    }
 
-            public Class<?> subtypeFor(JsonNode node) {
-                Class<?> subtype = null;
+                    buffer.writeFieldName(name);
+                    parser.nextToken();
+                    buffer.copyCurrentStructure(parser);
+                    token = parser.nextToken();
 
-                for (BeanInfo info : this) {
-                    if (hasAll(node, info.getPropertyDescriptors())) {
-                        subtype = info.getBeanDescriptor().getBeanClass().asSubclass(supertype);
+                    if ((! complete) && signature == null && isDecided(present)) {
                         break;
                     }
                 }
 
-                return subtype;
+                if (token == JsonToken.END_OBJECT) {
+                    buffer.writeEndObject();
+                    done = true;
+                }
+            } else {
+                buffer.copyCurrentStructure(parser);
+                done = true;
             }
 
-            private boolean hasAll(JsonNode node, PropertyDescriptor... properties) {
-                boolean hasAll = true;
+            JsonParser replay =
+                done
+                    ? buffer.asParser(parser)
+                    : JsonParserSequence.createFlattened(true, buffer.asParser(parser), parser);
+
+            replay.nextToken();
+
+            return replay;
+        }
+
+        public int size() { return subtypes.length; }
+
+        public Class<?> subtype(int index) { return subtypes[index].asSubclass(supertype); }
+
+        private boolean isDecided(long[] present) {
+            return required.length > 0 && hasAll(present, required[0]);
+        }
 
-                for (PropertyDescriptor property : properties) {
-                    hasAll &= node.has(property.getName());
+        private void mark(long[] present, String name) {
+            Integer id = ids.get(name);
 
-                    if (! hasAll) {
+            if (id != null) {
+                present[id >>> 6] |= 1L << id;
+            }
+        }
+
+        public int indexOf(long[] present, Signature signature) {
+            int index = -1;
+
+            if (signature != null) {
+                Integer cached = cache.get(signature);
+
+                if (cached != null) {
+                    index = cached;
+
+                    if (counts != null) {
+                        counts[(index >= 0) ? index : subtypes.length].increment();
+                    }
+                } else {
+                    for (int i = 0; i < signature.size; i += 1) {
+                        mark(present, signature.names[i]);
+                    }
+
+                    index = indexOf(present);
+                    cache.put(signature, index);
+                }
+            } else {
+                index = indexOf(present);
+            }
+
+            return index;
+        }
+
+        private int indexOf(long[] present) {
+            int index = -1;
+
+            if (counts != null) {
+                index = probe(present);
+                counts[(index >= 0) ? index : subtypes.length].increment();
+
+                if (ThreadLocalRandom.current().nextInt(REORDER_INTERVAL) == 0) {
+                    reorder();
+                }
+            } else {
+                index = firstMatch(present);
+            }
+
+            return index;
+        }
+
+        private int probe(long[] present) {
+            int index = -1;
+
+            for (int i : probe) {
+                if (hasAll(present, required[i])) {
+                    index = hasNone(present, distinct[i]) ? i : firstMatch(present);
+                    break;
+                }
+            }
+
+            return index;
+        }
+
+        private void reorder() {
+            long[] sums = new long[counts.length];
+
+            for (int i = 0; i < sums.length; i += 1) {
+                sums[i] = counts[i].sum();
+            }
+
+            probe =
+                Arrays.stream(probe).boxed()
+                .sorted(comparingLong(t -> - sums[t]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        }
+
+        public Map<Class<?>,Long> getCounts() {
+            LinkedHashMap<Class<?>,Long> map = new LinkedHashMap<>();
+
+            if (counts != null) {
+                for (int i : probe) {
+                    map.put(subtypes[i], counts[i].sum());
+                }
+
+                map.put(supertype, counts[subtypes.length].sum());
+            }
+
+            return map;
+        }
+
+        private int firstMatch(long[] present) {
+            int index = -1;
+
+            for (int i = 0; i < required.length; i += 1) {
+                if (hasAll(present, required[i])) {
+                    index = i;
+                    break;
+                }
+            }
+
+            return index;
+        }
+
+        private boolean hasAll(long[] present, long[] required) {
+            boolean hasAll = true;
+
+            for (int i = 0; i < required.length; i += 1) {
+                hasAll &= (required[i] & (~ present[i])) == 0;
+
+                if (! hasAll) {
+                    break;
+                }
+            }
+
+            return hasAll;
+        }
+
+        private boolean hasNone(long[] present, long[] properties) {
+            boolean hasNone = true;
+
+            for (int i = 0; i < properties.length; i += 1) {
+                hasNone &= (properties[i] & present[i]) == 0;
+
+                if (! hasNone) {
+                    break;
+                }
+            }
+
+            return hasNone;
+        }
+    }
+
+    /**
+     * The sequence of a document's field names.
+     */
+    private static class Signature {
+        private String[] names = new String[8];
+        private int size = 0;
+        private int hash = 1;
+
+        public Signature() { }
+
+        public void add(String name) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+
+            names[size++] = name;
+            hash = 31 * hash + name.hashCode();
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+
+        @Override
+        public boolean equals(Object object) {
+            boolean equals = (object instanceof Signature);
+
+            if (equals) {
+                Signature that = (Signature) object;
+
+                equals &= (this.hash == that.hash && this.size == that.size);
+
+                for (int i = 0; equals && i < size; i += 1) {
+                    equals &= (this.names[i] == that.names[i] || this.names[i].equals(that.names[i]));
+                }
+            }
+
+            return equals;
+        }
+
+        @Override
+        public String toString() { return Arrays.toString(Arrays.copyOf(names, size)); }
+    }
+
+    /**
+     * Bounded, concurrent {@link Signature} to subtype index cache.
+     */
+    @ToString
+    private static class SignatureCache {
+        private final int capacity;
+        private final Eviction eviction;
+        private final ConcurrentHashMap<Signature,Entry> map = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public SignatureCache(int capacity, Eviction eviction) {
+            this.capacity = capacity;
+            this.eviction = requireNonNull(eviction, "eviction");
+        }
+
+        public Integer get(Signature signature) {
+            Entry entry = map.get(signature);
+
+            if (entry != null) {
+                hits.increment();
+                entry.referenced = true;
+            } else {
+                misses.increment();
+            }
+
+            return (entry != null) ? entry.index : null;
+        }
+
+        public void put(Signature signature, int index) {
+            Entry entry = new Entry(signature, index);
+
+            if (map.putIfAbsent(signature, entry) == null) {
+                queue.offer(entry);
+
+                while (map.size() > capacity) {
+                    entry = queue.poll();
+
+                    if (entry == null) {
                         break;
                     }
+
+                    if (eviction == Eviction.SECOND_CHANCE && entry.referenced) {
+                        entry.referenced = false;
+                        queue.offer(entry);
+                    } else if (map.remove(entry.signature, entry)) {
+                        evictions.increment();
+                    }
                 }
+            }
+        }
+
+        public CacheStatistics getStatistics() {
+            return new CacheStatistics(map.size(), hits.sum(), misses.sum(), evictions.sum());
+        }
+
+        private static class Entry {
+            private final Signature signature;
+            private final int index;
+            private volatile boolean referenced = false;
 
-                return hasAll;
+            public Entry(Signature signature, int index) {
+                this.signature = signature;
+                this.index = index;
             }
         }
+    }
 
+    @ToString
+    private class DeserializerModifier extends BeanDeserializerModifier {
+        public DeserializerModifier() { super(); }
+
+        @Override
+        public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription description, JsonDeserializer<?> deserializer) {
+            Class<?> key = description.getBeanClass();
+
+            if (containsKey(key)) {
+                deserializer =
+                    (deserializer instanceof BeanDeserializer)
+                        ? new BeanDeserializerImpl((BeanDeserializer) deserializer, getSubtypeIndex(key, get(key)))
+                        : new AbstractDeserializerImpl(description, getSubtypeIndex(key, get(key)));
+            }
+
+            return deserializer;
+        }
+
+        /**
+         * Per-{@link JsonDeserializer} cache of the resolved subtype
+         * {@link JsonDeserializer}s (indexed as the {@link SubtypeIndex}).
+         */
         @ToString
-        private class JsonParserImpl extends TreeTraversingParser {
-            protected JsonNode node = null;
+        private class SubtypeDeserializers {
+            private final SubtypeIndex index;
+            private final AtomicReferenceArray<JsonDeserializer<Object>> array;
 
-            public JsonParserImpl(JsonParser parser) throws IOException {
-                this((JsonNode) parser.readValueAsTree(), parser.getCodec());
+            public SubtypeDeserializers(SubtypeIndex index) {
+                this.index = requireNonNull(index, "index");
+                this.array = new AtomicReferenceArray<>(index.size());
             }
 
-            private JsonParserImpl(JsonNode node, ObjectCodec codec) {
-                super(node, codec);
+            public JsonDeserializer<Object> get(int i, DeserializationContext context) throws IOException {
+                JsonDeserializer<Object> deserializer = array.get(i);
+
+                if (deserializer == null) {
+                    deserializer = context.findRootValueDeserializer(context.constructType(index.subtype(i)));
 
-                this.node = requireNonNull(node, "node");
+                    if (! array.compareAndSet(i, null, deserializer)) {
+                        deserializer = array.get(i);
+                    }
+                }
+
+                return deserializer;
             }
         }
 
@@ -234,43 +884,37 @@ public abstract class PolymorphicTypeMap extends TreeMap<Class<?>,Class<?>[]> {
         private class BeanDeserializerImpl extends BeanDeserializer {
             private static final long serialVersionUID = 7600217898656123257L;
 
-            private final BeanInfoList list;
+            private final SubtypeIndex index;
+            private final SubtypeDeserializers deserializers;
 
-            public BeanDeserializerImpl(BeanDeserializer deserializer, Class<?> supertype, Class<?>... subtypes) {
+            public BeanDeserializerImpl(BeanDeserializer deserializer, SubtypeIndex index) {
                 super(deserializer);
 
-                list = new BeanInfoList(supertype, subtypes);
+                this.index = requireNonNull(index, "index");
+                deserializers = new SubtypeDeserializers(index);
             }
 
             @Override
-            public Class<?> handledType() { return list.supertype(); }
+            public Class<?> handledType() { return index.supertype(); }
 
             @Override
             public Object deserialize(JsonParser parser, DeserializationContext context) throws IOException {
                 Object object = null;
                 ObjectCodec codec = parser.getCodec();
-                JsonNode node = null;
-
-                if (parser instanceof JsonParserImpl) {
-                    node = ((JsonParserImpl) parser).node;
-
-                    if (node != null) {
-                        ((JsonParserImpl) parser).node = null;
-                    }
+                TokenBuffer buffer = new TokenBuffer(parser, context);
+                long[] present = index.newMask();
+                Signature signature = index.newSignature();
+                JsonParser replay = index.scan(parser, buffer, present, signature, bufferRequired);
+                int i = index.indexOf(present, signature);
+
+                if (i >= 0) {
+                    object = deserializers.get(i, context).deserialize(replay, context);
+                } else {
+                    object = super.deserialize(replay, context);
                 }
 
-                if (node != null) {
-                    Class<?> subtype = list.subtypeFor(node);
-
-                    if (subtype != null) {
-                        object = codec.readValue(parser, subtype);
-                    } else {
-                        object = super.deserialize(parser, context);
-                    }
-
-                    initialize(list.supertype().cast(object), codec, node);
-                } else {
-                    object = codec.readValue(new JsonParserImpl(parser), list.supertype());
+                if (bufferRequired) {
+                    initialize(index.supertype().cast(object), codec, buffer);
                 }
 
                 return object;
@@ -281,43 +925,37 @@ public abstract class PolymorphicTypeMap extends TreeMap<Class<?>,Class<?>[]> {
         private class AbstractDeserializerImpl extends AbstractDeserializer {
             private static final long serialVersionUID = -7887072343275693448L;
 
-            private final BeanInfoList list;
+            private final SubtypeIndex index;
+            private final SubtypeDeserializers deserializers;
 
-            public AbstractDeserializerImpl(BeanDescription description, Class<?> supertype, Class<?>... subtypes) {
+            public AbstractDeserializerImpl(BeanDescription description, SubtypeIndex index) {
                 super(description);
 
-                list = new BeanInfoList(supertype, subtypes);
+                this.index = requireNonNull(index, "index");
+                deserializers = new SubtypeDeserializers(index);
             }
 
             @Override
-            public Class<?> handledType() { return list.supertype(); }
+            public Class<?> handledType() { return index.supertype(); }
 
             @Override
             public Object deserialize(JsonParser parser, DeserializationContext context) throws IOException {
                 Object object = null;
                 ObjectCodec codec = parser.getCodec();
-                JsonNode node = null;
-
-                if (parser instanceof JsonParserImpl) {
-                    node = ((JsonParserImpl) parser).node;
-
-                    if (node != null) {
-                        ((JsonParserImpl) parser).node = null;
-                    }
+                TokenBuffer buffer = new TokenBuffer(parser, context);
+                long[] present = index.newMask();
+                Signature signature = index.newSignature();
+                JsonParser replay = index.scan(parser, buffer, present, signature, bufferRequired);
+                int i = index.indexOf(present, signature);
+
+                if (i >= 0) {
+                    object = deserializers.get(i, context).deserialize(replay, context);
+                } else {
+                    object = super.deserialize(replay, context);
                 }
 
-                if (node != null) {
-                    Class<?> subtype = list.subtypeFor(node);
-
-                    if (subtype != null) {
-                        object = codec.readValue(parser, subtype);
-                    } else {
-                        object = super.deserialize(parser, context);
-                    }
-
-                    initialize(list.supertype().cast(object), codec, node);
-                } else {
-                    object = codec.readValue(new JsonParserImpl(parser), list.supertype());
+                if (bufferRequired) {
+                    initialize(index.supertype().cast(object), codec, buffer);
                 }
 
                 return object;
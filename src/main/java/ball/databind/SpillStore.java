@@ -0,0 +1,205 @@
+package ball.databind;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.Getter;
+import lombok.ToString;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Memory-mapped temporary file store for the encoded source of oversized
+ * {@link JSONBean}s (see {@link JSONBeanTypeMap#getSpillStore()}).  A
+ * spilled {@link JSONBean} retains only a {@link Handle} to a read-only
+ * mapping of its encoded source so the document occupies the page cache
+ * rather than the heap; the source is decoded (sequentially, through
+ * the mapping) on access.
+ * <p>
+ * The store is append-only:  Space is reclaimed only when the store is
+ * {@link #close() closed} (the backing file is deleted) and the
+ * {@link Handle}s referring to it are unreachable.  Long-running
+ * applications should replace the store periodically.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class SpillStore implements Closeable {
+
+    /**
+     * Default threshold (in bytes).
+     */
+    public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+    @ToString.Include private final Path path;
+    @ToString.Include @Getter private final int threshold;
+    private final FileChannel channel;
+    @ToString.Include @Getter private volatile long count = 0;
+    @ToString.Include @Getter private volatile long size = 0;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   directory       The directory in which to create the
+     *                          backing file ({@code null} for the default
+     *                          temporary-file directory).
+     * @param   threshold       The minimum encoded size (in bytes) of a
+     *                          spilled source.
+     *
+     * @throws  IOException     If the backing file cannot be created.
+     */
+    public SpillStore(Path directory, int threshold) throws IOException {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold=" + threshold);
+        }
+
+        String prefix = getClass().getSimpleName() + "-";
+
+        this.path =
+            (directory != null)
+                ? Files.createTempFile(directory, prefix, ".bin")
+                : Files.createTempFile(prefix, ".bin");
+        this.threshold = threshold;
+        this.channel = FileChannel.open(path, READ, WRITE, DELETE_ON_CLOSE);
+    }
+
+    /**
+     * No-argument constructor.  Creates an instance in the default
+     * temporary-file directory with {@link #DEFAULT_THRESHOLD}.
+     *
+     * @throws  IOException     If the backing file cannot be created.
+     */
+    public SpillStore() throws IOException { this(null, DEFAULT_THRESHOLD); }
+
+    /**
+     * Method to determine if an encoded source should be spilled to this
+     * store.
+     *
+     * @param   length          The length (in bytes) of the encoded
+     *                          source.
+     *
+     * @return  {@code true} if {@code length} is at least
+     *          {@link #getThreshold()}; {@code false} otherwise.
+     */
+    public boolean accepts(int length) { return length >= threshold; }
+
+    /**
+     * Method to append an encoded source to this store.
+     *
+     * @param   bytes           The encoded source.
+     *
+     * @return  The {@link Handle} to the stored source.
+     *
+     * @throws  IOException     If the source cannot be stored.
+     */
+    public synchronized Handle store(byte[] bytes) throws IOException {
+        long offset = size;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer, size);
+        }
+
+        count += 1;
+
+        return new Handle(channel.map(READ_ONLY, offset, bytes.length));
+    }
+
+    /**
+     * Method to close this store and delete the backing file.  Existing
+     * {@link Handle}s remain readable until they are unreachable.
+     *
+     * @throws  IOException     If the backing file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * {@link SpillStore} handle to a stored source.
+     */
+    @ToString(onlyExplicitlyIncluded = true)
+    public static class Handle {
+        private final MappedByteBuffer buffer;
+
+        private Handle(MappedByteBuffer buffer) {
+            this.buffer = requireNonNull(buffer, "buffer");
+        }
+
+        /**
+         * Method to get the length of the stored source.
+         *
+         * @return  The length (in bytes).
+         */
+        @ToString.Include
+        public int length() { return buffer.capacity(); }
+
+        /**
+         * Method to get an {@link InputStream} over the stored source.
+         *
+         * @return  The {@link InputStream}.
+         */
+        public InputStream newInputStream() {
+            return new ByteBufferBackedInputStream(buffer.duplicate());
+        }
+
+        /**
+         * Method to get a {@link JsonParser} over the stored source.
+         *
+         * @param   format          The {@link JsonFactory} of the
+         *                          encoding.
+         *
+         * @return  The {@link JsonParser}.
+         *
+         * @throws  IOException     If the {@link JsonParser} cannot be
+         *                          created.
+         */
+        public JsonParser createParser(JsonFactory format) throws IOException {
+            return format.createParser(newInputStream());
+        }
+
+        /**
+         * Method to copy the stored source to the heap.
+         *
+         * @return  The encoded source.
+         */
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[length()];
+
+            buffer.duplicate().get(bytes);
+
+            return bytes;
+        }
+    }
+}
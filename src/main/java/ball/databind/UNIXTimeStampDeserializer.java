@@ -20,31 +20,422 @@ package ball.databind;
  */
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.TemporalAccessor;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import lombok.ToString;
 
+import static java.time.temporal.ChronoField.HOUR_OF_DAY;
+import static java.time.temporal.ChronoField.OFFSET_SECONDS;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 /**
  * UNIX Time Stamp (seconds since epoch)
- * {@link com.fasterxml.jackson.databind.JsonDeserializer}.
+ * {@link com.fasterxml.jackson.databind.JsonDeserializer}.  The source
+ * is read as a {@link Date} would be:  Integer tokens are milliseconds
+ * since epoch and strings are ISO-8601 date-times (parsed with a shared
+ * {@link DateTimeFormatter}) or, failing that, are parsed with the
+ * configured {@link java.text.DateFormat} (see
+ * {@link DeserializationContext#parseDate(String)}).  Integer tokens
+ * are converted directly without creating an intermediate object.
+ * {@link Milliseconds}, {@link Microseconds}, and {@link Nanoseconds}
+ * variants are provided for other precisions and the deserializer may
+ * be applied to primitive {@code long} properties.  Milliseconds would
+ * truncate the {@link Microseconds} and {@link Nanoseconds} variants so
+ * their integer tokens (and strings of digits) are counts of their own
+ * {@link TimeUnit} (see {@link #getTimeStampUnit(TimeUnit)} and
+ * {@link UNIXTimeStampSerializer}).
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 @ToString
-public class UNIXTimeStampDeserializer extends StdDeserializer<Long> {
-    private static final long serialVersionUID = 4297437977249133382L;
+public class UNIXTimeStampDeserializer extends StdDeserializer<Long> implements ContextualDeserializer {
+    private static final long serialVersionUID = -3868054285239442321L;
+
+    /**
+     * ISO-8601 {@link DateTimeFormatter}:  The time and offset are
+     * optional and the offset may be specified as {@code Z},
+     * {@code +HH:MM}, or {@code +HHMM}.
+     */
+    public static final DateTimeFormatter FORMATTER =
+        new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .append(DateTimeFormatter.ISO_LOCAL_DATE)
+        .optionalStart().appendLiteral('T').append(DateTimeFormatter.ISO_LOCAL_TIME).optionalEnd()
+        .optionalStart().appendOffset("+HH:MM", "Z").optionalEnd()
+        .optionalStart().appendOffset("+HHMM", "Z").optionalEnd()
+        .toFormatter();
+
+    /** @serial */ private final TimeUnit unit;
+    /** @serial */ private final boolean primitive;
+
+    /**
+     * Constructor to specify the precision of the deserialized value.
+     *
+     * @param   unit            The {@link TimeUnit} of the deserialized
+     *                          value.
+     */
+    public UNIXTimeStampDeserializer(TimeUnit unit) { this(unit, false); }
+
+    private UNIXTimeStampDeserializer(TimeUnit unit, boolean primitive) {
+        super(Long.class);
+
+        this.unit = requireNonNull(unit, "unit");
+        this.primitive = primitive;
+    }
 
     /**
-     * Sole constructor.
+     * No-argument constructor.  Creates an instance that deserializes
+     * seconds since epoch.
      */
-    public UNIXTimeStampDeserializer() { super(Long.class); }
+    public UNIXTimeStampDeserializer() { this(SECONDS); }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) {
+        JsonDeserializer<?> deserializer = this;
+
+        if (property != null && property.getType().hasRawClass(Long.TYPE) && (! primitive)) {
+            deserializer = new UNIXTimeStampDeserializer(unit, true);
+        }
+
+        return deserializer;
+    }
+
+    @Override
+    public Long getNullValue(DeserializationContext context) {
+        return primitive ? Long.valueOf(0) : null;
+    }
 
     @Override
     public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException, JsonProcessingException {
-        Date date = parser.getCodec().readValue(parser, Date.class);
+        Long value = null;
+
+        if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+            value = unit.convert(parser.getLongValue(), getTimeStampUnit(unit));
+        } else if (parser.hasToken(JsonToken.VALUE_STRING)) {
+            value = toLong(unit, parser.getText(), context);
+
+            if (value == null) {
+                value = getNullValue(context);
+            }
+        } else {
+            value = (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+
+        return value;
+    }
+
+    /**
+     * Method to get the {@link TimeUnit} of a numeric time stamp for a
+     * value {@link TimeUnit}:  Milliseconds (as for {@link Date}) unless
+     * the value is more precise.
+     *
+     * @param   unit            The {@link TimeUnit} of the value.
+     *
+     * @return  The {@link TimeUnit} of the numeric time stamp.
+     */
+    protected static TimeUnit getTimeStampUnit(TimeUnit unit) {
+        return (unit.compareTo(MILLISECONDS) < 0) ? unit : MILLISECONDS;
+    }
+
+    /**
+     * Method to convert a date-time {@link String} to a count of
+     * {@link TimeUnit}s since epoch.  A string of digits is interpreted
+     * as a count of {@link #getTimeStampUnit(TimeUnit)}s and any other
+     * {@link String} is parsed with
+     * {@link #parse(String,Class,DeserializationContext)}.
+     *
+     * @param   unit            The {@link TimeUnit}.
+     * @param   text            The {@link String} to convert.
+     * @param   context         The {@link DeserializationContext}.
+     *
+     * @return  The count of {@link TimeUnit}s or {@code null} if
+     *          {@code text} is blank.
+     *
+     * @throws  IOException     If {@code text} cannot be parsed.
+     */
+    protected static Long toLong(TimeUnit unit, String text, DeserializationContext context) throws IOException {
+        Long value = null;
+        TimeUnit timestamp = getTimeStampUnit(unit);
+        String trimmed = text.trim();
+
+        if (timestamp != MILLISECONDS && (! trimmed.isEmpty()) && isDigits(trimmed, 20)) {
+            try {
+                value = unit.convert(Long.parseLong(trimmed), timestamp);
+            } catch (NumberFormatException exception) {
+                throw context.weirdStringException(text, Long.class, exception.getMessage());
+            }
+        } else {
+            OffsetDateTime date = parse(text, Long.class, context);
+
+            value = (date != null) ? toLong(unit, date.toInstant()) : null;
+        }
+
+        return value;
+    }
+
+    /**
+     * Method to convert an {@link Instant} to a count of {@link TimeUnit}s
+     * since epoch.
+     *
+     * @param   unit            The {@link TimeUnit}.
+     * @param   instant         The {@link Instant}.
+     *
+     * @return  The count of {@link TimeUnit}s.
+     */
+    protected static long toLong(TimeUnit unit, Instant instant) {
+        return unit.convert(instant.getEpochSecond(), SECONDS) + unit.convert(instant.getNano(), NANOSECONDS);
+    }
+
+    /**
+     * Method to parse a date-time {@link String}.  A string of digits is
+     * interpreted as milliseconds since epoch.  A date-time without an
+     * offset is interpreted in the {@link DeserializationContext}'s
+     * {@link java.util.TimeZone}.
+     *
+     * @param   text            The {@link String} to parse.
+     * @param   type            The target type (for error reporting).
+     * @param   context         The {@link DeserializationContext}.
+     *
+     * @return  The {@link OffsetDateTime} or {@code null} if
+     *          {@code text} is blank.
+     *
+     * @throws  IOException     If {@code text} cannot be parsed.
+     */
+    protected static OffsetDateTime parse(String text, Class<?> type,
+                                          DeserializationContext context) throws IOException {
+        OffsetDateTime date = null;
+        ZoneId zone = context.getTimeZone().toZoneId();
+
+        text = text.trim();
+
+        if (text.isEmpty()) {
+            date = null;
+        } else if (isDigits(text, 18)) {
+            date = OffsetDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(text)), zone);
+        } else {
+            try {
+                TemporalAccessor temporal = FORMATTER.parse(text);
+                LocalDate day = LocalDate.from(temporal);
+                LocalTime time = temporal.isSupported(HOUR_OF_DAY) ? LocalTime.from(temporal) : LocalTime.MIDNIGHT;
+                ZoneOffset offset =
+                    temporal.isSupported(OFFSET_SECONDS)
+                        ? ZoneOffset.from(temporal)
+                        : zone.getRules().getOffset(LocalDateTime.of(day, time));
+
+                date = OffsetDateTime.of(day, time, offset);
+            } catch (DateTimeException exception) {
+                try {
+                    date = OffsetDateTime.ofInstant(context.parseDate(text).toInstant(), zone);
+                } catch (IllegalArgumentException fallback) {
+                    throw context.weirdStringException(text, type, fallback.getMessage());
+                }
+            }
+        }
+
+        return date;
+    }
+
+    private static boolean isDigits(String text, int maximum) {
+        boolean digits = text.length() <= maximum;
+
+        for (int i = (text.charAt(0) == '-' && text.length() > 1) ? 1 : 0; digits && i < text.length(); i += 1) {
+            digits &= Character.isDigit(text.charAt(i));
+        }
+
+        return digits;
+    }
+
+    /**
+     * Milliseconds since epoch {@link UNIXTimeStampDeserializer}.
+     */
+    @ToString(callSuper = true)
+    public static class Milliseconds extends UNIXTimeStampDeserializer {
+        private static final long serialVersionUID = 8647920089017112194L;
+
+        /**
+         * Sole constructor.
+         */
+        public Milliseconds() { super(MILLISECONDS); }
+    }
+
+    /**
+     * Microseconds since epoch {@link UNIXTimeStampDeserializer}.
+     */
+    @ToString(callSuper = true)
+    public static class Microseconds extends UNIXTimeStampDeserializer {
+        private static final long serialVersionUID = 957722579544837576L;
+
+        /**
+         * Sole constructor.
+         */
+        public Microseconds() { super(MICROSECONDS); }
+    }
+
+    /**
+     * Nanoseconds since epoch {@link UNIXTimeStampDeserializer}.
+     */
+    @ToString(callSuper = true)
+    public static class Nanoseconds extends UNIXTimeStampDeserializer {
+        private static final long serialVersionUID = 6092461437761327841L;
+
+        /**
+         * Sole constructor.
+         */
+        public Nanoseconds() { super(NANOSECONDS); }
+    }
+
+    /**
+     * UNIX Time Stamp {@link Instant}
+     * {@link com.fasterxml.jackson.databind.JsonDeserializer} (see
+     * {@link UNIXTimeStampDeserializer}).
+     */
+    @ToString
+    public static class ForInstant extends StdDeserializer<Instant> {
+        private static final long serialVersionUID = 4161882936339310049L;
+
+        /**
+         * Sole constructor.
+         */
+        public ForInstant() { super(Instant.class); }
+
+        @Override
+        public Instant deserialize(JsonParser parser,
+                                   DeserializationContext context) throws IOException, JsonProcessingException {
+            Instant value = null;
+
+            if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                value = Instant.ofEpochMilli(parser.getLongValue());
+            } else if (parser.hasToken(JsonToken.VALUE_STRING)) {
+                OffsetDateTime date = parse(parser.getText(), Instant.class, context);
+
+                value = (date != null) ? date.toInstant() : null;
+            } else {
+                value = (Instant) context.handleUnexpectedToken(Instant.class, parser);
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * UNIX Time Stamp {@link OffsetDateTime}
+     * {@link com.fasterxml.jackson.databind.JsonDeserializer} (see
+     * {@link UNIXTimeStampDeserializer}).  Integer tokens are converted
+     * in the {@link DeserializationContext}'s {@link java.util.TimeZone}
+     * and the offset of an ISO-8601 string is preserved.
+     */
+    @ToString
+    public static class ForOffsetDateTime extends StdDeserializer<OffsetDateTime> {
+        private static final long serialVersionUID = -3452101860860235784L;
+
+        /**
+         * Sole constructor.
+         */
+        public ForOffsetDateTime() { super(OffsetDateTime.class); }
+
+        @Override
+        public OffsetDateTime deserialize(JsonParser parser,
+                                          DeserializationContext context) throws IOException, JsonProcessingException {
+            OffsetDateTime value = null;
+
+            if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                value =
+                    OffsetDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()),
+                                             context.getTimeZone().toZoneId());
+            } else if (parser.hasToken(JsonToken.VALUE_STRING)) {
+                value = parse(parser.getText(), OffsetDateTime.class, context);
+            } else {
+                value = (OffsetDateTime) context.handleUnexpectedToken(OffsetDateTime.class, parser);
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * UNIX Time Stamp {@link KeyDeserializer} (see
+     * {@link UNIXTimeStampDeserializer}).
+     */
+    @ToString
+    public static class Key extends KeyDeserializer {
+        private final TimeUnit unit;
+
+        /**
+         * Constructor to specify the precision of the deserialized key.
+         *
+         * @param   unit        The {@link TimeUnit} of the deserialized
+         *                      key.
+         */
+        public Key(TimeUnit unit) { this.unit = requireNonNull(unit, "unit"); }
+
+        /**
+         * No-argument constructor.  Creates an instance that
+         * deserializes seconds since epoch.
+         */
+        public Key() { this(SECONDS); }
+
+        @Override
+        public Object deserializeKey(String key, DeserializationContext context) throws IOException {
+            return toLong(unit, key, context);
+        }
+
+        /**
+         * Milliseconds since epoch {@link Key}.
+         */
+        @ToString(callSuper = true)
+        public static class Milliseconds extends Key {
+
+            /**
+             * Sole constructor.
+             */
+            public Milliseconds() { super(MILLISECONDS); }
+        }
+
+        /**
+         * Microseconds since epoch {@link Key}.
+         */
+        @ToString(callSuper = true)
+        public static class Microseconds extends Key {
+
+            /**
+             * Sole constructor.
+             */
+            public Microseconds() { super(MICROSECONDS); }
+        }
+
+        /**
+         * Nanoseconds since epoch {@link Key}.
+         */
+        @ToString(callSuper = true)
+        public static class Nanoseconds extends Key {
 
-        return (date != null) ? (date.getTime() / 1000) : null;
+            /**
+             * Sole constructor.
+             */
+            public Nanoseconds() { super(NANOSECONDS); }
+        }
     }
 }
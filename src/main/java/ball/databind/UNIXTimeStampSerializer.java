@@ -20,32 +20,294 @@ package ball.databind;
  */
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import java.io.IOException;
-import java.util.Date;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 import lombok.ToString;
 
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 /**
  * UNIX Time Stamp (seconds since epoch)
- * {@link com.fasterxml.jackson.databind.JsonSerializer}.
+ * {@link com.fasterxml.jackson.databind.JsonSerializer}.  The value is
+ * written as a {@link java.util.Date} would be (see
+ * {@link SerializerProvider#defaultSerializeDateValue(long,JsonGenerator)}):
+ * Milliseconds since epoch if
+ * {@link SerializationFeature#WRITE_DATES_AS_TIMESTAMPS} is enabled and
+ * formatted with the configured {@link java.text.DateFormat} otherwise.
+ * Values with sub-millisecond precision are formatted with
+ * {@link DateTimeFormatter#ISO_INSTANT} when not written as timestamps.
+ * {@link Milliseconds}, {@link Microseconds}, and {@link Nanoseconds}
+ * variants are provided for other precisions.  Milliseconds would
+ * truncate the {@link Microseconds} and {@link Nanoseconds} variants so
+ * their timestamps are written as counts of their own {@link TimeUnit}
+ * (see {@link UNIXTimeStampDeserializer#getTimeStampUnit(TimeUnit)}).
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 @ToString
 public class UNIXTimeStampSerializer extends StdSerializer<Long> {
-    private static final long serialVersionUID = -4952546998424181027L;
+    private static final long serialVersionUID = 3428646190390674170L;
+
+    /** @serial */ private final TimeUnit unit;
+
+    /**
+     * Constructor to specify the precision of the serialized value.
+     *
+     * @param   unit            The {@link TimeUnit} of the serialized
+     *                          value.
+     */
+    public UNIXTimeStampSerializer(TimeUnit unit) {
+        super(Long.class);
+
+        this.unit = requireNonNull(unit, "unit");
+    }
 
     /**
-     * Sole constructor.
+     * No-argument constructor.  Creates an instance that serializes
+     * seconds since epoch.
      */
-    public UNIXTimeStampSerializer() { super(Long.class); }
+    public UNIXTimeStampSerializer() { this(SECONDS); }
 
     @Override
     public void serialize(Long value, JsonGenerator generator, SerializerProvider provider) throws IOException,
                                                                                                    JsonProcessingException {
-        Date date = new Date(value.longValue() * 1000);
+        long count = value.longValue();
+        boolean precise = (unit.compareTo(MILLISECONDS) < 0);
+
+        if (precise && provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            generator.writeNumber(count);
+        } else if (precise && Math.floorMod(count, unit.convert(1, MILLISECONDS)) != 0) {
+            generator.writeString(DateTimeFormatter.ISO_INSTANT.format(toInstant(unit, count)));
+        } else {
+            provider.defaultSerializeDateValue(toMillis(unit, count), generator);
+        }
+    }
+
+    /**
+     * Method to convert a count of {@link TimeUnit}s since epoch to
+     * milliseconds since epoch (rounding towards negative infinity).
+     *
+     * @param   unit            The {@link TimeUnit}.
+     * @param   count           The count of {@link TimeUnit}s.
+     *
+     * @return  The milliseconds since epoch.
+     */
+    protected static long toMillis(TimeUnit unit, long count) {
+        return (unit.compareTo(MILLISECONDS) < 0)
+                   ? Math.floorDiv(count, unit.convert(1, MILLISECONDS))
+                   : unit.toMillis(count);
+    }
+
+    /**
+     * Method to convert a count of {@link TimeUnit}s since epoch to an
+     * {@link Instant}.
+     *
+     * @param   unit            The {@link TimeUnit}.
+     * @param   count           The count of {@link TimeUnit}s.
+     *
+     * @return  The {@link Instant}.
+     */
+    protected static Instant toInstant(TimeUnit unit, long count) {
+        Instant instant = null;
+
+        if (unit.compareTo(SECONDS) < 0) {
+            long scale = unit.convert(1, SECONDS);
+
+            instant =
+                Instant.ofEpochSecond(Math.floorDiv(count, scale),
+                                      unit.toNanos(Math.floorMod(count, scale)));
+        } else {
+            instant = Instant.ofEpochSecond(unit.toSeconds(count));
+        }
+
+        return instant;
+    }
+
+    /**
+     * Milliseconds since epoch {@link UNIXTimeStampSerializer}.
+     */
+    @ToString(callSuper = true)
+    public static class Milliseconds extends UNIXTimeStampSerializer {
+        private static final long serialVersionUID = -2770556586399393490L;
+
+        /**
+         * Sole constructor.
+         */
+        public Milliseconds() { super(MILLISECONDS); }
+    }
+
+    /**
+     * Microseconds since epoch {@link UNIXTimeStampSerializer}.
+     */
+    @ToString(callSuper = true)
+    public static class Microseconds extends UNIXTimeStampSerializer {
+        private static final long serialVersionUID = -8304544867771954058L;
+
+        /**
+         * Sole constructor.
+         */
+        public Microseconds() { super(MICROSECONDS); }
+    }
+
+    /**
+     * Nanoseconds since epoch {@link UNIXTimeStampSerializer}.
+     */
+    @ToString(callSuper = true)
+    public static class Nanoseconds extends UNIXTimeStampSerializer {
+        private static final long serialVersionUID = 2000194167342882271L;
+
+        /**
+         * Sole constructor.
+         */
+        public Nanoseconds() { super(NANOSECONDS); }
+    }
+
+    /**
+     * UNIX Time Stamp {@link Instant}
+     * {@link com.fasterxml.jackson.databind.JsonSerializer} (see
+     * {@link UNIXTimeStampSerializer}).
+     */
+    @ToString
+    public static class ForInstant extends StdSerializer<Instant> {
+        private static final long serialVersionUID = 5252693724202587159L;
+
+        /**
+         * Sole constructor.
+         */
+        public ForInstant() { super(Instant.class); }
+
+        @Override
+        public void serialize(Instant value, JsonGenerator generator,
+                              SerializerProvider provider) throws IOException, JsonProcessingException {
+            if (value.getNano() % 1_000_000 != 0
+                && (! provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS))) {
+                generator.writeString(DateTimeFormatter.ISO_INSTANT.format(value));
+            } else {
+                provider.defaultSerializeDateValue(value.toEpochMilli(), generator);
+            }
+        }
+    }
+
+    /**
+     * UNIX Time Stamp {@link OffsetDateTime}
+     * {@link com.fasterxml.jackson.databind.JsonSerializer} (see
+     * {@link UNIXTimeStampSerializer}).  When not written as a
+     * timestamp, the value is formatted with
+     * {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME} to preserve its
+     * offset.
+     */
+    @ToString
+    public static class ForOffsetDateTime extends StdSerializer<OffsetDateTime> {
+        private static final long serialVersionUID = 2955173809659756942L;
+
+        /**
+         * Sole constructor.
+         */
+        public ForOffsetDateTime() { super(OffsetDateTime.class); }
+
+        @Override
+        public void serialize(OffsetDateTime value, JsonGenerator generator,
+                              SerializerProvider provider) throws IOException, JsonProcessingException {
+            if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+                generator.writeNumber(value.toInstant().toEpochMilli());
+            } else {
+                generator.writeString(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(value));
+            }
+        }
+    }
+
+    /**
+     * UNIX Time Stamp {@link java.util.Map} key
+     * {@link com.fasterxml.jackson.databind.JsonSerializer} (see
+     * {@link UNIXTimeStampSerializer} and
+     * {@link SerializerProvider#defaultSerializeDateKey(long,JsonGenerator)}).
+     */
+    @ToString
+    public static class Key extends StdSerializer<Long> {
+        private static final long serialVersionUID = -6365393901809940387L;
+
+        /** @serial */ private final TimeUnit unit;
+
+        /**
+         * Constructor to specify the precision of the serialized key.
+         *
+         * @param   unit        The {@link TimeUnit} of the serialized
+         *                      key.
+         */
+        public Key(TimeUnit unit) {
+            super(Long.class);
+
+            this.unit = requireNonNull(unit, "unit");
+        }
+
+        /**
+         * No-argument constructor.  Creates an instance that serializes
+         * seconds since epoch.
+         */
+        public Key() { this(SECONDS); }
+
+        @Override
+        public void serialize(Long value, JsonGenerator generator,
+                              SerializerProvider provider) throws IOException, JsonProcessingException {
+            long count = value.longValue();
+            boolean precise = (unit.compareTo(MILLISECONDS) < 0);
+
+            if (precise && provider.isEnabled(SerializationFeature.WRITE_DATE_KEYS_AS_TIMESTAMPS)) {
+                generator.writeFieldName(String.valueOf(count));
+            } else if (precise && Math.floorMod(count, unit.convert(1, MILLISECONDS)) != 0) {
+                generator.writeFieldName(DateTimeFormatter.ISO_INSTANT.format(toInstant(unit, count)));
+            } else {
+                provider.defaultSerializeDateKey(toMillis(unit, count), generator);
+            }
+        }
+
+        /**
+         * Milliseconds since epoch {@link Key}.
+         */
+        @ToString(callSuper = true)
+        public static class Milliseconds extends Key {
+            private static final long serialVersionUID = -1896349397050095786L;
+
+            /**
+             * Sole constructor.
+             */
+            public Milliseconds() { super(MILLISECONDS); }
+        }
+
+        /**
+         * Microseconds since epoch {@link Key}.
+         */
+        @ToString(callSuper = true)
+        public static class Microseconds extends Key {
+            private static final long serialVersionUID = -9097437715961619L;
+
+            /**
+             * Sole constructor.
+             */
+            public Microseconds() { super(MICROSECONDS); }
+        }
+
+        /**
+         * Nanoseconds since epoch {@link Key}.
+         */
+        @ToString(callSuper = true)
+        public static class Nanoseconds extends Key {
+            private static final long serialVersionUID = 7684847817254222337L;
 
-        generator.writeObject(date);
+            /**
+             * Sole constructor.
+             */
+            public Nanoseconds() { super(NANOSECONDS); }
+        }
     }
 }
@@ -0,0 +1,149 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import java.io.IOException;
+import java.io.StringWriter;
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import lombok.ToString;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Abstract base class for {@link AttributeConverter}s that store
+ * {@link JSONEntity#getJson()} in a binary ({@code BLOB}) column encoded
+ * in a binary JSON format (see {@link Smile} and {@link CBOR}).  For
+ * example, on the entity class:
+ * {@code @Convert(attributeName = "json", converter = BinaryJsonConverter.Smile.class)}.
+ *
+ * The document is transcoded token-by-token (no parse-tree is built)
+ * without loss of numeric precision and the conversion is transparent to
+ * {@link JSONEntity#asJsonNode()} and {@link JSONEntityTypeMap}.  The
+ * entity attribute is compact JSON after a round-trip.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString
+public abstract class BinaryJsonConverter implements AttributeConverter<String,byte[]> {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JsonFactory format;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   format          The binary format {@link JsonFactory}.
+     */
+    protected BinaryJsonConverter(JsonFactory format) {
+        this.format = requireNonNull(format, "format");
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String json) {
+        byte[] bytes = null;
+
+        if (json != null) {
+            ByteArrayBuilder builder = new ByteArrayBuilder();
+
+            try (JsonParser parser = JSON.createParser(json);
+                 JsonGenerator generator = format.createGenerator(builder)) {
+                transcode(parser, generator);
+            } catch (IOException exception) {
+                throw new IllegalArgumentException(exception);
+            }
+
+            bytes = builder.toByteArray();
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        String json = null;
+
+        if (bytes != null) {
+            StringWriter writer = new StringWriter();
+
+            try (JsonParser parser = format.createParser(bytes);
+                 JsonGenerator generator = JSON.createGenerator(writer)) {
+                transcode(parser, generator);
+            } catch (IOException exception) {
+                throw new IllegalArgumentException(exception);
+            }
+
+            json = writer.toString();
+        }
+
+        return json;
+    }
+
+    /*
+     * JsonGenerator.copyCurrentStructure(JsonParser) writes floating-point
+     * values through JsonParser.getDoubleValue() so each event is copied
+     * with JsonGenerator.copyCurrentEventExact(JsonParser) which carries
+     * textual (and BigDecimal) values as BigDecimal.
+     */
+    private static void transcode(JsonParser parser, JsonGenerator generator) throws IOException {
+        while (parser.nextToken() != null) {
+            generator.copyCurrentEventExact(parser);
+        }
+    }
+
+    private static JsonFactory newInstance(String name) {
+        try {
+            return (Class.forName(name, true, BinaryJsonConverter.class.getClassLoader())
+                    .asSubclass(JsonFactory.class)
+                    .getConstructor().newInstance());
+        } catch (ReflectiveOperationException | LinkageError exception) {
+            throw new IllegalStateException(name + " is not available", exception);
+        }
+    }
+
+    /**
+     * Smile {@link BinaryJsonConverter}.  Requires
+     * {@code com.fasterxml.jackson.dataformat:jackson-dataformat-smile}.
+     */
+    @Converter
+    public static class Smile extends BinaryJsonConverter {
+
+        /**
+         * Sole constructor.
+         */
+        public Smile() { super(newInstance("com.fasterxml.jackson.dataformat.smile.SmileFactory")); }
+    }
+
+    /**
+     * CBOR {@link BinaryJsonConverter}.  Requires
+     * {@code com.fasterxml.jackson.dataformat:jackson-dataformat-cbor}.
+     */
+    @Converter
+    public static class CBOR extends BinaryJsonConverter {
+
+        /**
+         * Sole constructor.
+         */
+        public CBOR() { super(newInstance("com.fasterxml.jackson.dataformat.cbor.CBORFactory")); }
+    }
+}
@@ -0,0 +1,99 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link AttributeConverter} to store {@link JSONEntity#getJson()} as
+ * Deflate-compressed UTF-8 in a binary ({@code BLOB}) column.  For
+ * example, on the entity class:
+ * {@code @Convert(attributeName = "json", converter = DeflateJsonConverter.class)}.
+ *
+ * The conversion is transparent to {@link JSONEntity#asJsonNode()} and
+ * {@link JSONEntityTypeMap}.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@Converter
+@NoArgsConstructor @ToString
+public class DeflateJsonConverter implements AttributeConverter<String,byte[]> {
+    @Override
+    public byte[] convertToDatabaseColumn(String json) {
+        byte[] bytes = null;
+
+        if (json != null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+            try (OutputStream out = new DeflaterOutputStream(buffer, deflater)) {
+                out.write(json.getBytes(UTF_8));
+            } catch (IOException exception) {
+                throw new IllegalArgumentException(exception);
+            } finally {
+                deflater.end();
+            }
+
+            bytes = buffer.toByteArray();
+        }
+
+        return bytes;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        String json = null;
+
+        if (bytes != null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(4 * bytes.length);
+            Inflater inflater = new Inflater();
+
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(bytes), inflater)) {
+                byte[] chunk = new byte[8192];
+                int count = 0;
+
+                while ((count = in.read(chunk)) >= 0) {
+                    buffer.write(chunk, 0, count);
+                }
+            } catch (IOException exception) {
+                throw new IllegalArgumentException(exception);
+            } finally {
+                inflater.end();
+            }
+
+            json = new String(buffer.toByteArray(), UTF_8);
+        }
+
+        return json;
+    }
+}
@@ -19,61 +19,277 @@ package ball.databind.entity;
  * ##########################################################################
  */
 import ball.databind.JSONBean;
+import ball.databind.JSONPatch;
+import ball.databind.SpillStore;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import javax.persistence.Column;
 import javax.persistence.Lob;
 import javax.persistence.MappedSuperclass;
-import lombok.EqualsAndHashCode;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableList;
+
 /**
- * Abstract base class for {@link JSONBean} entities.
+ * Abstract base class for {@link JSONBean} entities.  The persisted JSON
+ * text and its parse-tree are held as an immutable pair published
+ * atomically without locking:  The tree is parsed on first access and is
+ * only ever observed with the text it was parsed from.  Equality and hash
+ * codes are computed from a cached 128-bit fingerprint of the text (see
+ * {@link #equals(Object)}).
  *
  * {@bean.info}
  *
  * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
  */
 @MappedSuperclass
-@NoArgsConstructor @EqualsAndHashCode(callSuper = false)
+@NoArgsConstructor
 public class JSONEntity extends JSONBean {
     private static final long serialVersionUID = -688254612378583290L;
 
+    private static final AtomicReferenceFieldUpdater<JSONEntity,Snapshot> SNAPSHOT =
+        AtomicReferenceFieldUpdater.newUpdater(JSONEntity.class, Snapshot.class, "snapshot");
+
+    private static final ClassValue<List<Projection>> PROJECTIONS =
+        new ClassValue<List<Projection>>() {
+            @Override
+            protected List<Projection> computeValue(Class<?> type) {
+                return Projection.of(type);
+            }
+        };
+
     /** @serial */
     @Column @Lob
     @Getter
-    protected String json = null;
+    protected volatile String json = null;
 
-    protected void setJson(String string) {
-        synchronized (this) {
-            boolean modified = (node == null || (! string.equals(json)));
+    private transient volatile Snapshot snapshot = null;
+    private transient volatile Fingerprint fingerprint = null;
+    private transient volatile String persisted = null;
+    private transient volatile String projected = null;
+
+    @Override
+    protected String getSourceText() { return json; }
 
+    /**
+     * {@inheritDoc}  {@link JSONEntity} changes are recorded between
+     * {@link #persisted()} callbacks.
+     */
+    @Override
+    protected boolean isRecordingChanges() { return true; }
+
+    /**
+     * Method to set the JSON text.  The {@link JsonNode} is not parsed
+     * until it is first required (see {@link #getNode()}) so loading an
+     * entity costs only the assignment.
+     *
+     * @param   string          The JSON text.
+     */
+    protected void setJson(String string) {
+        if (! Objects.equals(string, json)) {
+            setSource(null);
+            node = null;
             json = string;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The {@link JsonNode} is parsed from {@link #getJson()} on first
+     * access (whether {@link #getJson()} was set through
+     * {@link #setJson(String)} or directly by the persistence provider)
+     * and published atomically (paired with the text) so every thread
+     * observes the same instance.
+     */
+    @Override
+    protected JsonNode getNode() {
+        JsonNode node = null;
+        String json = this.json;
+
+        if (json != null) {
+            Snapshot snapshot = this.snapshot;
+
+            if (snapshot != null && snapshot.json == json) {
+                node = snapshot.node;
+            } else {
+                try {
+                    node = freeze(mapper.getNodeFactory(), mapper.readTree(json));
+                } catch (IOException exception) {
+                    throw new IllegalStateException(exception);
+                }
 
-            if (modified) {
-                node = null;
+                if (! SNAPSHOT.compareAndSet(this, snapshot, new Snapshot(json, node))) {
+                    Snapshot current = this.snapshot;
 
-                if (json != null) {
-                    try {
-                        node = mapper.readTree(json);
-                    } catch (IOException exception) {
-                        throw new IllegalArgumentException(exception);
+                    if (current != null && current.json == json) {
+                        node = current.node;
                     }
                 }
             }
+        } else {
+            node = super.getNode();
+        }
+
+        return node;
+    }
+
+    /**
+     * Method to initialize this {@link JSONEntity} from a parse-tree and
+     * the compact UTF-8 encoding of the same document.  The JSON text is
+     * decoded from the bytes and the {@link JsonNode} is used as-is so
+     * neither is derived by re-serializing or re-parsing the other.
+     *
+     * @param   mapper          The {@link ObjectMapper}.
+     * @param   node            The read-only {@link JsonNode}.
+     * @param   bytes           The UTF-8 encoded source.
+     * @param   passThrough     {@code true} to also retain the bytes for
+     *                          pass-through serialization (see
+     *                          {@link ball.databind.JSONBeanTypeMap#isPassThrough()});
+     *                          {@code false} otherwise.
+     */
+    protected void initialize(ObjectMapper mapper, JsonNode node, byte[] bytes, boolean passThrough) {
+        String json = new String(bytes, UTF_8);
+
+        this.mapper = mapper;
+
+        setJson(json);
+
+        if (passThrough) {
+            setSource(bytes);
+        }
+
+        this.snapshot = new Snapshot(this.json, node);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * {@link JSONEntity} holds its source as {@link #getJson()} so the
+     * bytes are retained only for pass-through serialization (and only
+     * while {@link #getJson()} is the text decoded from them).
+     */
+    @Override
+    protected void initialize(ObjectMapper mapper, byte[] bytes, boolean passThrough) {
+        this.mapper = mapper;
+
+        setJson(new String(bytes, UTF_8));
+
+        if (passThrough) {
+            setSource(bytes);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * {@link JSONEntity} persists its source as JSON text so the binary
+     * encoding is transcoded to (compact) {@link #getJson()}.
+     */
+    @Override
+    protected void initialize(ObjectMapper mapper, JsonFactory format, byte[] bytes) {
+        this.mapper = mapper;
+
+        try (JsonParser parser = format.createParser(bytes)) {
+            setJson(transcode(mapper, parser));
+        } catch (IOException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * {@link JSONEntity} persists its source as JSON text so the spilled
+     * encoding is transcoded to (compact) {@link #getJson()} and the
+     * {@link SpillStore.Handle} is not retained.
+     */
+    @Override
+    protected void initialize(ObjectMapper mapper, JsonFactory format, SpillStore.Handle spilled) {
+        this.mapper = mapper;
+
+        try (JsonParser parser = spilled.createParser(format)) {
+            setJson(transcode(mapper, parser));
+        } catch (IOException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+
+    /*
+     * Transcoded event-by-event (exactly) without building a parse-tree
+     * to preserve the precision of floating-point values (see
+     * BinaryJsonConverter).
+     */
+    private static String transcode(ObjectMapper mapper, JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter();
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEventExact(parser);
+            }
         }
+
+        return writer.toString();
     }
 
     /**
-     * Method to get this {@link JSONEntity} as a {@link JsonNode}.
+     * {@inheritDoc}
+     *
+     * {@link #getJson()} is rendered as compact JSON (regardless of
+     * {@link com.fasterxml.jackson.databind.SerializationFeature#INDENT_OUTPUT})
+     * in the same form as a deserialized {@link JSONEntity}.
+     */
+    @Override
+    protected void setNode(JsonNode node) {
+        String json = null;
+
+        if (node != null) {
+            StringWriter writer = new StringWriter();
+
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+                mapper.writeTree(generator, node);
+            } catch (IOException exception) {
+                throw new IllegalArgumentException(exception);
+            }
+
+            json = writer.toString();
+        }
+
+        super.setNode(node);
+
+        this.snapshot = (json != null) ? new Snapshot(json, node) : null;
+        this.json = json;
+    }
+
+    /**
+     * Method to get this {@link JSONEntity} as a {@link JsonNode}.  The
+     * returned {@link JsonNode} is a shared, read-only snapshot; callers
+     * that need to modify it should {@link JsonNode#deepCopy()} it first.
      *
      * @return  The {@link JSONEntity} as a {@link JsonNode}.
      */
     public JsonNode asJsonNode() {
-        JsonNode node = this.node;
-
-        return (node != null) ? node.deepCopy() : null;
+        return getNode();
     }
 
     @Override
@@ -82,4 +298,282 @@ public class JSONEntity extends JSONBean {
 
         return (string != null) ? string : super.toString();
     }
+
+    /**
+     * Callback to set the {@link JSONProjection} fields from the
+     * {@link JsonNode}.  The fields are only set once for a given
+     * {@link #getJson()} value.
+     */
+    @PrePersist @PreUpdate
+    protected void project() {
+        List<Projection> projections = PROJECTIONS.get(getClass());
+
+        if (! projections.isEmpty()) {
+            String json = this.json;
+
+            if (json != projected) {
+                JsonNode node = getNode();
+
+                for (Projection projection : projections) {
+                    projection.apply(this, mapper, node);
+                }
+
+                projected = json;
+            }
+        }
+    }
+
+    /**
+     * Callback to record the JSON text as persisted (see
+     * {@link #isModified()}).
+     */
+    @PostLoad @PostPersist @PostUpdate
+    protected void persisted() {
+        persisted = json;
+        clearChanges();
+    }
+
+    /**
+     * Method to compute the JSON Patch (RFC 6902) that transforms this
+     * {@link JSONEntity} into another (for change feeds).  Sub-trees
+     * shared by the two versions are not compared.
+     *
+     * @param   that            The other {@link JSONEntity}.
+     *
+     * @return  The read-only JSON Patch.
+     */
+    public JsonNode diff(JSONEntity that) {
+        return JSONPatch.diff(mapper.getNodeFactory(), this.getNode(), that.getNode());
+    }
+
+    /**
+     * Method to determine if the JSON text has been modified since this
+     * {@link JSONEntity} was last loaded or flushed.  Because
+     * {@link #setJson(String)} retains the current instance when it is
+     * given equal text, an unmodified entity is detected by reference
+     * comparison without examining the text.
+     *
+     * @return  {@code true} if modified; {@code false} otherwise.
+     */
+    public boolean isModified() {
+        String json = this.json;
+        String persisted = this.persisted;
+
+        return (json != persisted && (! contentEquals(json, persisted)));
+    }
+
+    private Fingerprint getFingerprint(String json) {
+        Fingerprint fingerprint = this.fingerprint;
+
+        if (fingerprint == null || fingerprint.json != json) {
+            fingerprint = new Fingerprint(json);
+            this.fingerprint = fingerprint;
+        }
+
+        return fingerprint;
+    }
+
+    private static boolean contentEquals(String left, String right) {
+        return (left == right
+                || (left != null && right != null && left.length() == right.length() && left.equals(right)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Two {@link JSONEntity}s are equal if their JSON text is equal.  The
+     * text is only compared if the lengths and 128-bit fingerprints of
+     * the texts are the same.
+     */
+    @Override
+    public boolean equals(Object object) {
+        boolean equal = (object == this);
+
+        if ((! equal) && object instanceof JSONEntity) {
+            JSONEntity that = (JSONEntity) object;
+
+            if (that.canEqual(this)) {
+                String left = this.json;
+                String right = that.json;
+
+                if (left == right) {
+                    equal = true;
+                } else if (left != null && right != null && left.length() == right.length()) {
+                    equal = (this.getFingerprint(left).equals(that.getFingerprint(right)) && left.equals(right));
+                }
+            }
+        }
+
+        return equal;
+    }
+
+    /**
+     * Method to determine if another object may be equal to this
+     * {@link JSONEntity} (for subclasses that refine
+     * {@link #equals(Object)}).
+     *
+     * @param   other           The other {@link Object}.
+     *
+     * @return  {@code true} if the other object may be equal;
+     *          {@code false} otherwise.
+     */
+    protected boolean canEqual(Object other) {
+        return other instanceof JSONEntity;
+    }
+
+    @Override
+    public int hashCode() {
+        String json = this.json;
+
+        return (json != null) ? getFingerprint(json).hashCode() : 43;
+    }
+
+    /**
+     * MurmurHash3 (x64, 128-bit) fingerprint of a {@link String}
+     * computed over its UTF-16 code units (four per 64-bit block).
+     */
+    private static class Fingerprint {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private final String json;
+        private final long h1;
+        private final long h2;
+
+        public Fingerprint(String json) {
+            int length = json.length();
+            int i = 0;
+            long h1 = 0;
+            long h2 = 0;
+
+            for (; i + 8 <= length; i += 8) {
+                h1 ^= mixK1(block(json, i, 4));
+                h1 = Long.rotateLeft(h1, 27) + h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                h2 ^= mixK2(block(json, i + 4, 4));
+                h2 = Long.rotateLeft(h2, 31) + h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+
+            int remaining = length - i;
+
+            if (remaining > 4) {
+                h2 ^= mixK2(block(json, i + 4, remaining - 4));
+            }
+
+            if (remaining > 0) {
+                h1 ^= mixK1(block(json, i, Math.min(remaining, 4)));
+            }
+
+            h1 ^= 2L * length;
+            h2 ^= 2L * length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix(h1);
+            h2 = fmix(h2);
+            h1 += h2;
+            h2 += h1;
+
+            this.json = json;
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+
+        private static long block(String string, int offset, int count) {
+            long block = 0;
+
+            for (int i = 0; i < count; i += 1) {
+                block |= ((long) string.charAt(offset + i)) << (16 * i);
+            }
+
+            return block;
+        }
+
+        private static long mixK1(long k1) {
+            return Long.rotateLeft(k1 * C1, 31) * C2;
+        }
+
+        private static long mixK2(long k2) {
+            return Long.rotateLeft(k2 * C2, 33) * C1;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+
+            return k;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return (object instanceof Fingerprint
+                    && ((Fingerprint) object).h1 == h1 && ((Fingerprint) object).h2 == h2);
+        }
+
+        @Override
+        public int hashCode() { return Long.hashCode(h1); }
+    }
+
+    /**
+     * {@link JSONProjection} field and its compiled {@link JsonPointer}.
+     */
+    private static class Projection {
+        private final Field field;
+        private final JsonPointer pointer;
+        private final Object empty;
+
+        public Projection(Field field, JsonPointer pointer) {
+            this.field = field;
+            this.pointer = pointer;
+            this.empty = field.getType().isPrimitive() ? Array.get(Array.newInstance(field.getType(), 1), 0) : null;
+        }
+
+        public void apply(JSONEntity entity, ObjectMapper mapper, JsonNode node) {
+            JsonNode value = (node != null) ? node.at(pointer) : null;
+
+            try {
+                if (value != null && (! value.isMissingNode()) && (! value.isNull())) {
+                    field.set(entity, mapper.treeToValue(value, field.getType()));
+                } else {
+                    field.set(entity, empty);
+                }
+            } catch (IOException | IllegalAccessException exception) {
+                throw new IllegalStateException(field + ": " + pointer, exception);
+            }
+        }
+
+        public static List<Projection> of(Class<?> type) {
+            List<Projection> list = new ArrayList<>();
+
+            for (Class<?> c = type; c != null && JSONEntity.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    JSONProjection annotation = field.getAnnotation(JSONProjection.class);
+
+                    if (annotation != null) {
+                        field.setAccessible(true);
+                        list.add(new Projection(field, JsonPointer.compile(annotation.value())));
+                    }
+                }
+            }
+
+            return list.isEmpty() ? Collections.<Projection>emptyList() : unmodifiableList(list);
+        }
+    }
+
+    /**
+     * Immutable JSON text and parse-tree pair.
+     */
+    private static class Snapshot {
+        private final String json;
+        private final JsonNode node;
+
+        public Snapshot(String json, JsonNode node) {
+            this.json = json;
+            this.node = node;
+        }
+    }
 }
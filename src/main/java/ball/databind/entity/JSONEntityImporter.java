@@ -0,0 +1,181 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.ToString;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Streaming bulk importer for {@link JSONEntity} subclasses.  The input is
+ * either a JSON array or a sequence of root-level JSON values (for
+ * example, newline-delimited JSON) and is read one element at a time
+ * with a {@link MappingIterator} so memory is bounded by the batch size
+ * rather than the input size.  Entities are handed to a caller-supplied
+ * sink in batches (typically aligned with the JDBC/JPA batch size).  The
+ * {@link ObjectMapper} should be configured for the entity type (e.g.,
+ * with a {@link JSONEntityTypeMap}).
+ *
+ * @param       <T>             The {@link JSONEntity} type.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ToString
+public class JSONEntityImporter<T extends JSONEntity> {
+    private final ObjectReader reader;
+    private final int batchSize;
+
+    /**
+     * Sole constructor.
+     *
+     * @param   mapper          The {@link ObjectMapper}.
+     * @param   type            The {@link JSONEntity} type.
+     * @param   batchSize       The maximum number of entities passed to
+     *                          the sink at once.
+     */
+    public JSONEntityImporter(ObjectMapper mapper, Class<T> type, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize=" + batchSize);
+        }
+
+        this.reader = requireNonNull(mapper, "mapper").readerFor(requireNonNull(type, "type"));
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Method to import entities from an {@link InputStream}.  The
+     * {@link InputStream} is not closed.
+     *
+     * @param   in              The {@link InputStream}.
+     * @param   sink            The batch {@link Consumer}.
+     *
+     * @return  The import {@link Statistics}.
+     *
+     * @throws  IOException     If the input cannot be read or bound.
+     */
+    public Statistics importFrom(InputStream in, Consumer<? super List<T>> sink) throws IOException {
+        long start = System.nanoTime();
+
+        try (JsonParser parser = reader.getFactory().createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+            return importFrom(parser, sink, start);
+        }
+    }
+
+    /**
+     * Method to import entities from a {@link Reader}.  The
+     * {@link Reader} is not closed.
+     *
+     * @param   in              The {@link Reader}.
+     * @param   sink            The batch {@link Consumer}.
+     *
+     * @return  The import {@link Statistics}.
+     *
+     * @throws  IOException     If the input cannot be read or bound.
+     */
+    public Statistics importFrom(Reader in, Consumer<? super List<T>> sink) throws IOException {
+        long start = System.nanoTime();
+
+        try (JsonParser parser = reader.getFactory().createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+            return importFrom(parser, sink, start);
+        }
+    }
+
+    private Statistics importFrom(JsonParser parser,
+                                  Consumer<? super List<T>> sink, long start) throws IOException {
+        long count = 0;
+        long batches = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+        /*
+         * Position the parser at the first value:  The first element of a
+         * top-level array or the first root-level value.
+         */
+        JsonToken token = parser.nextToken();
+
+        if (token == JsonToken.START_ARRAY) {
+            token = parser.nextToken();
+        }
+
+        if (token != null && token != JsonToken.END_ARRAY) {
+            MappingIterator<T> iterator = reader.readValues(parser);
+
+            while (iterator.hasNextValue()) {
+                batch.add(iterator.nextValue());
+                count += 1;
+
+                if (batch.size() >= batchSize) {
+                    sink.accept(batch);
+                    batches += 1;
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+
+        if (! batch.isEmpty()) {
+            sink.accept(batch);
+            batches += 1;
+        }
+
+        return new Statistics(count, batches, System.nanoTime() - start);
+    }
+
+    /**
+     * {@link JSONEntityImporter} statistics.
+     *
+     * {@bean.info}
+     */
+    @Getter @ToString
+    public static class Statistics {
+        private final long count;
+        private final long batches;
+        private final long nanos;
+
+        private Statistics(long count, long batches, long nanos) {
+            this.count = count;
+            this.batches = batches;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Method to get the throughput in documents per second.
+         *
+         * @return  The throughput.
+         */
+        @ToString.Include
+        public double getRate() {
+            return (nanos > 0) ? (count * (double) TimeUnit.SECONDS.toNanos(1)) / nanos : 0;
+        }
+    }
+}
@@ -19,10 +19,13 @@ package ball.databind.entity;
  * ##########################################################################
  */
 import ball.databind.JSONBeanTypeMap;
+import ball.databind.SpillStore;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import java.io.IOException;
 import lombok.NoArgsConstructor;
 
@@ -37,14 +40,40 @@ import static lombok.AccessLevel.PROTECTED;
 public abstract class JSONEntityTypeMap extends JSONBeanTypeMap {
     private static final long serialVersionUID = 6051935980614867450L;
 
+    /**
+     * {@inheritDoc}
+     *
+     * {@link JSONEntity}s always hold their JSON text so they are never
+     * spilled:  This implementation returns {@code null}.
+     */
     @Override
-    protected void initialize(Object object, ObjectCodec codec, JsonNode node) throws IOException {
-        super.initialize(object, codec, node);
+    protected final SpillStore getSpillStore() { return null; }
 
-        if (object instanceof JSONEntity) {
+    /**
+     * {@inheritDoc}
+     *
+     * For {@link Retention#TREE} {@link JSONEntity}s, the parse-tree and
+     * the compact encoding of the document are both built from the
+     * {@link TokenBuffer} and the entity is initialized with both (see
+     * {@link JSONEntity#initialize(ObjectMapper,JsonNode,byte[],boolean)}).
+     * The encoding is retained only if {@link #isPassThrough()}.
+     */
+    @Override
+    protected void initialize(Object object, ObjectCodec codec, TokenBuffer buffer) throws IOException {
+        if (object instanceof JSONEntity && getRetention() == Retention.TREE) {
             JSONEntity entity = (JSONEntity) object;
+            ObjectMapper mapper = (ObjectMapper) codec;
+            byte[] bytes = toByteArray(mapper, buffer);
+
+            try (JsonParser parser = buffer.asParser(codec)) {
+                parser.nextToken();
+
+                initialize(object, codec, (JsonNode) mapper.readTree(parser));
+            }
 
-            entity.setJson(((ObjectMapper) codec).writeValueAsString(node));
+            entity.initialize(mapper, entity.asJsonNode(), bytes, isPassThrough());
+        } else {
+            super.initialize(object, codec, buffer);
         }
     }
 }
@@ -0,0 +1,56 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * {@link java.lang.annotation.Annotation} to mark a persistent field of a
+ * {@link JSONEntity} subclass as a projection of the value at a
+ * {@link com.fasterxml.jackson.core.JsonPointer} in
+ * {@link JSONEntity#getJson()}.  The field is set from the entity's
+ * (already parsed) {@link com.fasterxml.jackson.databind.JsonNode} before
+ * the entity is persisted or updated so the value may be mapped to an
+ * indexed column and queried without loading the document.  For
+ * example:
+ * {@code @JSONProjection("/customer/id") @Column private Long customerId;}.
+ * A missing or {@code null} value sets the field to {@code null} (or the
+ * default value for a primitive type).
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@Documented
+@Retention(RUNTIME)
+@Target({ FIELD })
+public @interface JSONProjection {
+
+    /**
+     * The {@link String} representation of the
+     * {@link com.fasterxml.jackson.core.JsonPointer}.
+     *
+     * @return  The {@link com.fasterxml.jackson.core.JsonPointer}
+     *          expression.
+     */
+    String value();
+}
@@ -0,0 +1,253 @@
+package ball.databind.processing;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import ball.annotation.ServiceProviderFor;
+import ball.databind.CompiledTypeMap;
+import ball.util.PropertiesImpl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
+
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.WARNING;
+
+/**
+ * {@link Processor} to validate the {@link java.util.Properties} resource
+ * of {@link CompiledTypeMap}-annotated
+ * {@link ball.databind.PolymorphicTypeMap} subclasses and to generate the
+ * corresponding {@link ball.databind.PolymorphicTypeMap.Registrations}
+ * class.  The generated class registers each mapping with class literals
+ * so no resource I/O, parsing, or {@link Class#forName(String)} lookups
+ * (with static initialization) are required at run time.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@ServiceProviderFor({ Processor.class })
+@SupportedAnnotationTypes({ "ball.databind.CompiledTypeMap" })
+@NoArgsConstructor @ToString
+public class CompiledTypeMapProcessor extends AbstractProcessor {
+    private static final String POLYMORPHIC_TYPE_MAP = "ball.databind.PolymorphicTypeMap";
+    private static final String REGISTRATIONS = POLYMORPHIC_TYPE_MAP + ".Registrations";
+    private static final StandardLocation[] LOCATIONS =
+        new StandardLocation[] { StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH };
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() { return SourceVersion.latestSupported(); }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror map = types.erasure(elements.getTypeElement(POLYMORPHIC_TYPE_MAP).asType());
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(CompiledTypeMap.class)) {
+            if (element.getKind().isClass() && types.isSubtype(types.erasure(element.asType()), map)) {
+                try {
+                    process((TypeElement) element);
+                } catch (Exception exception) {
+                    processingEnv.getMessager().printMessage(ERROR, String.valueOf(exception), element);
+                }
+            } else {
+                processingEnv.getMessager()
+                    .printMessage(ERROR, element + " is not a subclass of " + POLYMORPHIC_TYPE_MAP, element);
+            }
+        }
+
+        return true;
+    }
+
+    private void process(TypeElement type) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        PackageElement pkg = elements.getPackageOf(type);
+        String name = type.getSimpleName() + ".properties";
+        PropertiesImpl properties = load(pkg, name);
+
+        if (properties == null) {
+            processingEnv.getMessager()
+                .printMessage(WARNING, name + " not found; registrations will be loaded at run time", type);
+            return;
+        }
+
+        TreeMap<String,TypeElement> keys = new TreeMap<>();
+        TreeMap<String,TreeMap<String,TypeElement>> values = new TreeMap<>();
+        boolean valid = true;
+
+        for (String key : properties.stringPropertyNames()) {
+            TypeElement supertype = getTypeElementFor(type, pkg, key);
+
+            if (supertype == null) {
+                valid = false;
+                continue;
+            }
+
+            TreeMap<String,TypeElement> subtypes = new TreeMap<>();
+
+            for (String substring : properties.getProperty(key).split("[,\\p{Space}]+")) {
+                substring = substring.trim();
+
+                if (! StringUtils.isEmpty(substring)) {
+                    TypeElement subtype = getTypeElementFor(type, pkg, substring);
+
+                    if (subtype == null) {
+                        valid = false;
+                    } else if (! types.isAssignable(types.erasure(subtype.asType()), types.erasure(supertype.asType()))) {
+                        processingEnv.getMessager()
+                            .printMessage(ERROR,
+                                          subtype.getQualifiedName() + " is not a subclass of " + supertype.getQualifiedName(),
+                                          type);
+                        valid = false;
+                    } else {
+                        subtypes.put(elements.getBinaryName(subtype).toString(), subtype);
+                    }
+                }
+            }
+
+            String binaryName = elements.getBinaryName(supertype).toString();
+
+            keys.put(binaryName, supertype);
+            values.put(binaryName, subtypes);
+        }
+
+        if (valid) {
+            generate(type, pkg, keys, values);
+        }
+    }
+
+    private PropertiesImpl load(PackageElement pkg, String name) {
+        PropertiesImpl properties = null;
+
+        for (StandardLocation location : LOCATIONS) {
+            try {
+                FileObject file = processingEnv.getFiler().getResource(location, pkg.getQualifiedName(), name);
+
+                try (InputStream in = file.openInputStream()) {
+                    properties = new PropertiesImpl();
+                    properties.load(in);
+                }
+
+                break;
+            } catch (IOException | IllegalArgumentException exception) {
+                properties = null;
+                continue;
+            }
+        }
+
+        return properties;
+    }
+
+    private TypeElement getTypeElementFor(TypeElement type, PackageElement pkg, String name) {
+        Elements elements = processingEnv.getElementUtils();
+        String canonical = name.replace('$', '.');
+        TypeElement element = null;
+
+        if (! pkg.isUnnamed()) {
+            element = elements.getTypeElement(pkg.getQualifiedName() + "." + canonical);
+        }
+
+        if (element == null) {
+            element = elements.getTypeElement(canonical);
+        }
+
+        if (element == null) {
+            processingEnv.getMessager().printMessage(ERROR, "Cannot find class " + name, type);
+        } else if (! isAccessible(element, pkg)) {
+            processingEnv.getMessager()
+                .printMessage(ERROR, element.getQualifiedName() + " is not accessible from " + pkg, type);
+            element = null;
+        }
+
+        return element;
+    }
+
+    private boolean isAccessible(TypeElement element, PackageElement pkg) {
+        Elements elements = processingEnv.getElementUtils();
+        boolean isAccessible = true;
+
+        for (Element e = element; isAccessible && (e instanceof TypeElement); e = e.getEnclosingElement()) {
+            isAccessible =
+                e.getModifiers().contains(PUBLIC)
+                || ((! e.getModifiers().contains(PRIVATE)) && elements.getPackageOf(e).equals(pkg));
+        }
+
+        return isAccessible;
+    }
+
+    private void generate(TypeElement type, PackageElement pkg,
+                          Map<String,TypeElement> keys, Map<String,? extends Map<String,TypeElement>> values) throws IOException {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String name = binaryName + CompiledTypeMap.SUFFIX;
+        String simpleName = pkg.isUnnamed() ? name : name.substring(pkg.getQualifiedName().length() + 1);
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(name, type);
+
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (! pkg.isUnnamed()) {
+                out.println("package " + pkg.getQualifiedName() + ";");
+                out.println();
+            }
+
+            out.println("/**");
+            out.println(" * {@link " + type.getQualifiedName() + "} registrations generated by");
+            out.println(" * {@link " + getClass().getName() + "}.");
+            out.println(" */");
+            out.println("public final class " + simpleName + " implements " + REGISTRATIONS + " {");
+            out.println("    public " + simpleName + "() { }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void register(" + POLYMORPHIC_TYPE_MAP + " map) {");
+
+            for (Map.Entry<String,TypeElement> entry : keys.entrySet()) {
+                StringBuilder buffer = new StringBuilder();
+
+                for (TypeElement subtype : values.get(entry.getKey()).values()) {
+                    buffer.append((buffer.length() > 0) ? ", " : " ").append(subtype.getQualifiedName()).append(".class");
+                }
+
+                out.println("        map.put(" + entry.getValue().getQualifiedName() + ".class,"
+                            + " new Class<?>[] {" + buffer + " });");
+            }
+
+            out.println("    }");
+            out.println("}");
+        }
+    }
+}
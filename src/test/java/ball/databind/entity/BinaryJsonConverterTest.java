@@ -0,0 +1,95 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * {@link BinaryJsonConverter} tests.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class BinaryJsonConverterTest {
+    private static EntityManagerFactory factory = null;
+
+    @BeforeAll
+    public static void open() { factory = H2.open(BinaryJsonConverterTest.class); }
+
+    @AfterAll
+    public static void close() { factory.close(); }
+
+    /*
+     * The text is transcoded so documents are written compact (as the
+     * converter renders them).  Decimal values must survive exactly: not
+     * through double (12345678901234567.891) and with their scale (0.10,
+     * 2.50).
+     */
+    private static Stream<String> documents() {
+        return Stream.of("{\"amount\":12345678901234567.891,\"x\":0.10}",
+                         "{\"big\":18446744073709551616,\"small\":1.5E-7}",
+                         "{\"text\":\"\u00e9t\u00e9\",\"list\":[1,2.50,-9223372036854775808,null,true]}");
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void convertSmile(String json) {
+        BinaryJsonConverter converter = new BinaryJsonConverter.Smile();
+
+        assertEquals(json, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(json)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void convertCBOR(String json) {
+        BinaryJsonConverter converter = new BinaryJsonConverter.CBOR();
+
+        assertEquals(json, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(json)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void roundTripSmile(String json) {
+        SmileEntity entity = H2.reload(factory, new SmileEntity(json));
+
+        assertEquals(json, entity.getJson());
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void roundTripCBOR(String json) {
+        CBOREntity entity = H2.reload(factory, new CBOREntity(json));
+
+        assertEquals(json, entity.getJson());
+    }
+
+    @Test
+    public void roundTripNull() {
+        assertNull(H2.reload(factory, new SmileEntity(null)).getJson());
+        assertNull(H2.reload(factory, new CBOREntity(null)).getJson());
+    }
+}
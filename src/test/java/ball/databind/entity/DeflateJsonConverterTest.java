@@ -0,0 +1,82 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.stream.Stream;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * {@link DeflateJsonConverter} tests.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class DeflateJsonConverterTest {
+    private static EntityManagerFactory factory = null;
+
+    @BeforeAll
+    public static void open() { factory = H2.open(DeflateJsonConverterTest.class); }
+
+    @AfterAll
+    public static void close() { factory.close(); }
+
+    /*
+     * The text is stored byte-for-byte so whitespace, escapes, and
+     * numeric representations are all preserved.
+     */
+    private static Stream<String> documents() {
+        return Stream.of("{\"amount\":12345678901234567.891,\"x\":0.10}",
+                         "{\"big\":18446744073709551616,\"small\":1.5E-7}",
+                         "{ \"text\" : \"\\u00e9t\\u00e9 \u00e9t\u00e9\",\n  \"list\" : [ 1, 2.50, null ] }");
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void convert(String json) {
+        DeflateJsonConverter converter = new DeflateJsonConverter();
+        byte[] bytes = converter.convertToDatabaseColumn(json);
+
+        assertNotEquals(json, new String(bytes, UTF_8));
+        assertEquals(json, converter.convertToEntityAttribute(bytes));
+    }
+
+    @ParameterizedTest
+    @MethodSource("documents")
+    public void roundTrip(String json) {
+        DeflateEntity entity = H2.reload(factory, new DeflateEntity(json));
+
+        assertEquals(json, entity.getJson());
+    }
+
+    @Test
+    public void roundTripNull() {
+        DeflateEntity entity = H2.reload(factory, new DeflateEntity(null));
+
+        assertNull(entity.getJson());
+    }
+}
@@ -0,0 +1,145 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.Persistence;
+import javax.persistence.TypedQuery;
+import lombok.NoArgsConstructor;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * H2 in-memory database test support.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@NoArgsConstructor(access = PRIVATE)
+final class H2 {
+    private static final String UNIT = "ball-databind";
+    private static final String URL = "javax.persistence.jdbc.url";
+
+    /**
+     * Method to open an {@link EntityManagerFactory} on a private
+     * in-memory database.
+     *
+     * @param   test            The test {@link Class} (names the
+     *                          database).
+     *
+     * @return  The {@link EntityManagerFactory}.
+     */
+    public static EntityManagerFactory open(Class<?> test) {
+        String url = "jdbc:h2:mem:" + test.getSimpleName() + ";DB_CLOSE_DELAY=-1";
+
+        return Persistence.createEntityManagerFactory(UNIT, Collections.singletonMap(URL, url));
+    }
+
+    /**
+     * Method to run a unit of work in a transaction.  The transaction is
+     * rolled back if the unit of work fails.
+     *
+     * @param   factory         The {@link EntityManagerFactory}.
+     * @param   work            The unit of work.
+     */
+    public static void transaction(EntityManagerFactory factory, Consumer<? super EntityManager> work) {
+        EntityManager manager = factory.createEntityManager();
+
+        try {
+            EntityTransaction transaction = manager.getTransaction();
+
+            transaction.begin();
+
+            try {
+                work.accept(manager);
+                transaction.commit();
+            } finally {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+            }
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * Method to persist an entity and read it back (with a new
+     * {@link EntityManager}) from the database.
+     *
+     * @param   <T>             The entity type.
+     * @param   factory         The {@link EntityManagerFactory}.
+     * @param   entity          The entity.
+     *
+     * @return  The entity as loaded from the database.
+     */
+    public static <T> T reload(EntityManagerFactory factory, T entity) {
+        transaction(factory, t -> t.persist(entity));
+
+        Object id = factory.getPersistenceUnitUtil().getIdentifier(entity);
+        EntityManager manager = factory.createEntityManager();
+        T loaded = null;
+
+        try {
+            @SuppressWarnings({ "unchecked" })
+            Class<T> type = (Class<T>) entity.getClass();
+
+            loaded = manager.find(type, id);
+        } finally {
+            manager.close();
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Method to run a JPQL query (with a new {@link EntityManager}).
+     *
+     * @param   <T>             The result type.
+     * @param   factory         The {@link EntityManagerFactory}.
+     * @param   type            The result type {@link Class}.
+     * @param   jpql            The JPQL query.
+     * @param   parameters      The positional parameters ({@code ?1},
+     *                          {@code ?2}, ...).
+     *
+     * @return  The results.
+     */
+    public static <T> List<T> query(EntityManagerFactory factory, Class<T> type, String jpql, Object... parameters) {
+        EntityManager manager = factory.createEntityManager();
+        List<T> list = null;
+
+        try {
+            TypedQuery<T> query = manager.createQuery(jpql, type);
+
+            for (int i = 0; i < parameters.length; i += 1) {
+                query.setParameter(i + 1, parameters[i]);
+            }
+
+            list = query.getResultList();
+        } finally {
+            manager.close();
+        }
+
+        return list;
+    }
+}
@@ -0,0 +1,166 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link JSONEntityImporter} tests.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class JSONEntityImporterTest {
+    private static final ObjectMapper MAPPER =
+        new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .registerModule(new SimpleModule(TypeMap.class.getName())
+                        .setDeserializerModifier(new TypeMap().getBeanDeserializerModifier()));
+
+    private static EntityManagerFactory factory = null;
+
+    @BeforeAll
+    public static void open() { factory = H2.open(JSONEntityImporterTest.class); }
+
+    @AfterAll
+    public static void close() { factory.close(); }
+
+    private static JSONEntityImporter<ProjectedEntity> importer(int batchSize) {
+        return new JSONEntityImporter<>(MAPPER, ProjectedEntity.class, batchSize);
+    }
+
+    private static String json(String customer, long total) {
+        return "{\"customer\":{\"id\":\"" + customer + "\"},\"total\":" + total + "}";
+    }
+
+    @Test
+    public void array() throws IOException {
+        String[] documents = { json("c1", 3), "{\"customer\":{\"id\":\"c2\"}}", "{\"total\":5}" };
+        List<ProjectedEntity> list = new ArrayList<>();
+        List<Integer> batches = new ArrayList<>();
+        JSONEntityImporter.Statistics statistics =
+            importer(2).importFrom(new StringReader("[ " + String.join(",\n  ", documents) + " ]"),
+                                   t -> { batches.add(t.size()); list.addAll(t); });
+
+        assertEquals(3L, statistics.getCount());
+        assertEquals(2L, statistics.getBatches());
+        assertEquals(asList(2, 1), batches);
+        assertEquals(asList(documents), list.stream().map(JSONEntity::getJson).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void ndjson() throws IOException {
+        String input = json("c1", 1) + "\n" + json("c2", 2) + "\n";
+        List<ProjectedEntity> list = new ArrayList<>();
+        JSONEntityImporter.Statistics statistics =
+            importer(10).importFrom(new ByteArrayInputStream(input.getBytes(UTF_8)), list::addAll);
+
+        assertEquals(2L, statistics.getCount());
+        assertEquals(1L, statistics.getBatches());
+        assertEquals(asList(json("c1", 1), json("c2", 2)),
+                     list.stream().map(JSONEntity::getJson).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void empty() throws IOException {
+        List<List<ProjectedEntity>> batches = new ArrayList<>();
+
+        for (String input : asList("[]", " [ ] ", "")) {
+            JSONEntityImporter.Statistics statistics = importer(2).importFrom(new StringReader(input), batches::add);
+
+            assertEquals(0L, statistics.getCount());
+            assertEquals(0L, statistics.getBatches());
+        }
+
+        assertEquals(emptyList(), batches);
+    }
+
+    @Test
+    public void batchBoundary() throws IOException {
+        List<Integer> batches = new ArrayList<>();
+        JSONEntityImporter.Statistics statistics =
+            importer(2).importFrom(new StringReader("[{},{},{},{}]"), t -> batches.add(t.size()));
+
+        assertEquals(4L, statistics.getCount());
+        assertEquals(2L, statistics.getBatches());
+        assertEquals(asList(2, 2), batches);
+    }
+
+    @Test
+    public void persist() throws IOException {
+        StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < 25; i += 1) {
+            input.append(json("c" + (i % 3), i)).append("\n");
+        }
+
+        JSONEntityImporter.Statistics statistics =
+            importer(10).importFrom(new StringReader(input.toString()),
+                                    t -> H2.transaction(factory, m -> t.forEach(m::persist)));
+
+        assertEquals(25L, statistics.getCount());
+        assertEquals(3L, statistics.getBatches());
+        assertEquals(asList(25L), H2.query(factory, Long.class, "SELECT COUNT(e) FROM ProjectedEntity e"));
+
+        List<ProjectedEntity> list =
+            H2.query(factory, ProjectedEntity.class,
+                     "SELECT e FROM ProjectedEntity e WHERE e.customerId = ?1 ORDER BY e.totalAmount", "c1");
+
+        assertEquals(asList(1L, 4L, 7L, 10L, 13L, 16L, 19L, 22L),
+                     list.stream().map(ProjectedEntity::getTotalAmount).collect(Collectors.toList()));
+        assertEquals(json("c1", 22), list.get(list.size() - 1).getJson());
+
+        list =
+            H2.query(factory, ProjectedEntity.class, "SELECT e FROM ProjectedEntity e WHERE e.totalAmount = ?1", 24L);
+
+        assertEquals(asList("c0"), list.stream().map(ProjectedEntity::getCustomerId).collect(Collectors.toList()));
+    }
+
+    /**
+     * {@link JSONEntityTypeMap} for {@link ProjectedEntity}.
+     */
+    public static class TypeMap extends JSONEntityTypeMap {
+        private static final long serialVersionUID = -4999493086609994264L;
+
+        /**
+         * Sole constructor.
+         */
+        public TypeMap() {
+            super();
+
+            put(ProjectedEntity.class, new Class<?>[] { });
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * {@link JSONProjection} tests.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+public class JSONProjectionTest {
+    private static final String BY_CUSTOMER = "SELECT e FROM ProjectedEntity e WHERE e.customerId = ?1 ORDER BY e.id";
+    private static final String BY_TOTAL = "SELECT e FROM ProjectedEntity e WHERE e.totalAmount = ?1 ORDER BY e.id";
+
+    private static EntityManagerFactory factory = null;
+
+    @BeforeAll
+    public static void open() { factory = H2.open(JSONProjectionTest.class); }
+
+    @AfterAll
+    public static void close() { factory.close(); }
+
+    private static String json(String customer, long total) {
+        return "{\"customer\":{\"id\":\"" + customer + "\"},\"total\":" + total + "}";
+    }
+
+    private static List<Long> totals(List<ProjectedEntity> list) {
+        return list.stream().map(ProjectedEntity::getTotalAmount).collect(Collectors.toList());
+    }
+
+    @Test
+    public void persist() {
+        H2.transaction(factory, t -> {
+                t.persist(new ProjectedEntity(json("alice", 3)));
+                t.persist(new ProjectedEntity(json("alice", 5)));
+                t.persist(new ProjectedEntity(json("bob", 1003)));
+            });
+
+        assertEquals(asList(3L, 5L), totals(H2.query(factory, ProjectedEntity.class, BY_CUSTOMER, "alice")));
+
+        List<ProjectedEntity> list = H2.query(factory, ProjectedEntity.class, BY_TOTAL, 1003L);
+
+        assertEquals(1, list.size());
+        assertEquals("bob", list.get(0).getCustomerId());
+        assertEquals(json("bob", 1003), list.get(0).getJson());
+    }
+
+    @Test
+    public void update() {
+        ProjectedEntity entity = new ProjectedEntity(json("carol", 2001));
+
+        H2.transaction(factory, t -> t.persist(entity));
+        H2.transaction(factory, t -> t.find(ProjectedEntity.class, entity.getId()).setJson(json("dave", 2002)));
+
+        assertEquals(emptyList(), H2.query(factory, ProjectedEntity.class, BY_CUSTOMER, "carol"));
+        assertEquals(emptyList(), H2.query(factory, ProjectedEntity.class, BY_TOTAL, 2001L));
+
+        List<ProjectedEntity> list = H2.query(factory, ProjectedEntity.class, BY_CUSTOMER, "dave");
+
+        assertEquals(asList(2002L), totals(list));
+        assertEquals(entity.getId(), list.get(0).getId());
+        assertEquals(json("dave", 2002), list.get(0).getJson());
+    }
+
+    @Test
+    public void missing() {
+        for (String json : asList(null, "{}", "{\"customer\":{\"id\":null},\"total\":null}", "{\"customer\":[]}")) {
+            ProjectedEntity entity = H2.reload(factory, new ProjectedEntity(json));
+
+            assertNull(entity.getCustomerId());
+            assertEquals(0L, entity.getTotalAmount());
+            assertEquals(json, entity.getJson());
+        }
+    }
+}
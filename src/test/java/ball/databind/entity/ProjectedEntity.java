@@ -0,0 +1,63 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Test {@link JSONEntity} with indexed {@link JSONProjection} columns.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@Entity
+@Table(indexes = { @Index(columnList = "customerId"), @Index(columnList = "totalAmount") })
+@NoArgsConstructor
+public class ProjectedEntity extends JSONEntity {
+    private static final long serialVersionUID = 6087913321326516840L;
+
+    @Id @GeneratedValue
+    @Getter
+    private Long id = null;
+
+    @JSONProjection("/customer/id") @Column
+    @Getter
+    private String customerId = null;
+
+    @JSONProjection("/total") @Column
+    @Getter
+    private long totalAmount = 0;
+
+    /**
+     * Construct from JSON text.
+     *
+     * @param   json            The JSON text.
+     */
+    public ProjectedEntity(String json) {
+        this();
+
+        setJson(json);
+    }
+}
@@ -0,0 +1,53 @@
+package ball.databind.entity;
+/*-
+ * ##########################################################################
+ * Data Binding Utilities
+ * %%
+ * Copyright (C) 2016 - 2022 Allen D. Ball
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ##########################################################################
+ */
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Test {@link JSONEntity} stored in a Smile column.
+ *
+ * @author {@link.uri mailto:ball@hcf.dev Allen D. Ball}
+ */
+@Entity
+@Convert(attributeName = "json", converter = BinaryJsonConverter.Smile.class)
+@NoArgsConstructor
+public class SmileEntity extends JSONEntity {
+    private static final long serialVersionUID = -4996293776668835100L;
+
+    @Id @GeneratedValue
+    @Getter
+    private Long id = null;
+
+    /**
+     * Construct from JSON text.
+     *
+     * @param   json            The JSON text.
+     */
+    public SmileEntity(String json) {
+        this();
+
+        setJson(json);
+    }
+}